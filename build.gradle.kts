@@ -1,7 +1,23 @@
+buildscript {
+    // Brotli encoder for precompressing static assets; the native library has to match the machine running the build
+    val os = System.getProperty("os.name").lowercase()
+    val arch = if (System.getProperty("os.arch") in listOf("aarch64", "arm64")) "aarch64" else "x86_64"
+    val platform = when {
+        os.contains("mac") -> "osx-$arch"
+        os.contains("win") -> "windows-$arch"
+        else -> "linux-$arch"
+    }
+    dependencies {
+        classpath("com.aayushatharva.brotli4j:brotli4j:1.16.0")
+        classpath("com.aayushatharva.brotli4j:native-$platform:1.16.0")
+    }
+}
+
 plugins {
 	java
 	id("org.springframework.boot") version "3.5.7"
 	id("io.spring.dependency-management") version "1.1.7"
+	id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "world.erv"
@@ -20,6 +36,20 @@ repositories {
 
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-webflux")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+
+    // CBOR and Smile encodings of the API, negotiated by Accept
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile")
+
+    // Lets Netty offer brotli alongside gzip when compressing responses. The jar may run on a different machine than
+    // the one that built it, so it carries the native library of every platform the buildscript above supports.
+    implementation("com.aayushatharva.brotli4j:brotli4j:1.16.0")
+    listOf("linux", "osx", "windows").forEach { os ->
+        listOf("x86_64", "aarch64").forEach { arch ->
+            runtimeOnly("com.aayushatharva.brotli4j:native-$os-$arch:1.16.0")
+        }
+    }
     implementation("org.flywaydb:flyway-core")
     implementation("org.flywaydb:flyway-database-postgresql")
 
@@ -34,15 +64,50 @@ dependencies {
 
     implementation("com.google.genai:google-genai:1.28.0")
 
+    // Metrics and tracing; spans are exported over OTLP once management.otlp.tracing.endpoint is set
+    implementation("io.projectreactor:reactor-core-micrometer")
+    implementation("io.micrometer:micrometer-tracing-bridge-otel")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
+    runtimeOnly("io.opentelemetry:opentelemetry-exporter-otlp")
+
     developmentOnly("org.springframework.boot:spring-boot-devtools")
 
 	testImplementation("org.springframework.boot:spring-boot-starter-test")
+    testImplementation("io.projectreactor:reactor-test")
+    // Local HTTP stub standing in for upstream APIs
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
 	testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
+// Writes .gz and .br siblings of the dashboard's scripts and stylesheets at maximum compression, so they're served
+// precompressed instead of being compressed on every request. index.html is left out: it's rewritten when served.
+tasks.processResources {
+    doLast {
+        com.aayushatharva.brotli4j.Brotli4jLoader.ensureAvailability()
+        val brotli = com.aayushatharva.brotli4j.encoder.Encoder.Parameters().setQuality(11)
+
+        fileTree(destinationDir.resolve("static")) { include("**/*.js", "**/*.css") }.forEach { asset ->
+            val bytes = asset.readBytes()
+            object : java.util.zip.GZIPOutputStream(File("${asset.path}.gz").outputStream()) {
+                init {
+                    def.setLevel(java.util.zip.Deflater.BEST_COMPRESSION)
+                }
+            }.use { gzip -> gzip.write(bytes) }
+            File("${asset.path}.br").writeBytes(com.aayushatharva.brotli4j.encoder.Encoder.compress(bytes, brotli))
+        }
+    }
+}
+
 tasks.withType<Test> {
 	useJUnitPlatform()
 
     minHeapSize = "2g"
     maxHeapSize = "4g"
 }
+
+// Benchmarks live in src/jmh; run with ./gradlew jmh
+jmh {
+    jmhVersion.set("1.37")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
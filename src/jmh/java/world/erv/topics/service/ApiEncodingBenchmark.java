@@ -0,0 +1,153 @@
+package world.erv.topics.service;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import world.erv.topics.dto.TopicDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encode cost of a multi-day trending response in each format the API negotiates, alone and compressed the way the
+ * server compresses it (gzip level 6, brotli quality 4, Netty's defaults). Each benchmark also reports the size of
+ * what it produced as the {@code payloadBytes} secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiEncodingBenchmark {
+
+    private static final int TOPICS_PER_DAY = 50;
+
+    /**
+     * Size of the last payload a benchmark produced; it is the same on every invocation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+        public long payloadBytes;
+    }
+
+    @Param({"1", "7", "30"})
+    public int days;
+
+    private List<TopicDto> topicDtos;
+    private ObjectMapper jsonMapper;
+    private ObjectMapper cborMapper;
+    private ObjectMapper smileMapper;
+    private Encoder.Parameters brotliParameters;
+
+    @Setup
+    public void setUp() throws IOException {
+        Brotli4jLoader.ensureAvailability();
+
+        // Most of a day's topics are still trending the next day, as in the real feed
+        Random random = new Random(42);
+        topicDtos = new ArrayList<>(days * TOPICS_PER_DAY);
+        for (int day = 0; day < days; day++) {
+            for (int i = 0; i < TOPICS_PER_DAY; i++) {
+                int article = random.nextInt(4) == 0 ? day * TOPICS_PER_DAY + i : i;
+                String title = "Article_" + article;
+                topicDtos.add(new TopicDto(
+                        (long) article,
+                        title,
+                        "https://en.wikipedia.org/wiki/" + title,
+                        10_000L + random.nextInt(1_000_000),
+                        random.nextGaussian() * 1000
+                ));
+            }
+        }
+
+        jsonMapper = new ObjectMapper();
+        cborMapper = new ObjectMapper(new CBORFactory());
+        smileMapper = new ObjectMapper(SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build());
+        brotliParameters = new Encoder.Parameters().setQuality(4);
+    }
+
+    @Benchmark
+    public byte[] json(PayloadSize size) throws IOException {
+        return measure(size, encodeJson());
+    }
+
+    @Benchmark
+    public byte[] cbor(PayloadSize size) throws IOException {
+        return measure(size, encodeCbor());
+    }
+
+    @Benchmark
+    public byte[] smile(PayloadSize size) throws IOException {
+        return measure(size, encodeSmile());
+    }
+
+    @Benchmark
+    public byte[] jsonGzip(PayloadSize size) throws IOException {
+        return measure(size, gzip(encodeJson()));
+    }
+
+    @Benchmark
+    public byte[] jsonBrotli(PayloadSize size) throws IOException {
+        return measure(size, Encoder.compress(encodeJson(), brotliParameters));
+    }
+
+    @Benchmark
+    public byte[] cborGzip(PayloadSize size) throws IOException {
+        return measure(size, gzip(encodeCbor()));
+    }
+
+    @Benchmark
+    public byte[] smileGzip(PayloadSize size) throws IOException {
+        return measure(size, gzip(encodeSmile()));
+    }
+
+    private byte[] encodeJson() throws IOException {
+        return jsonMapper.writeValueAsBytes(topicDtos);
+    }
+
+    private byte[] encodeCbor() throws IOException {
+        return cborMapper.writeValueAsBytes(topicDtos);
+    }
+
+    private byte[] encodeSmile() throws IOException {
+        return smileMapper.writeValueAsBytes(topicDtos);
+    }
+
+    private static byte[] measure(PayloadSize size, byte[] payload) {
+        size.payloadBytes = payload.length;
+        return payload;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        // The default level is 6, as in Netty
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+}
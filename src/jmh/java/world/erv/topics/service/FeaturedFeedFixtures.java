@@ -0,0 +1,77 @@
+package world.erv.topics.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Builds featured feed documents shaped like the Wikimedia response: a {@code mostread} section of the requested
+ * size surrounded by the {@code tfa}, {@code news} and {@code onthisday} sections the parser has to skip.
+ */
+final class FeaturedFeedFixtures {
+
+    private FeaturedFeedFixtures() {
+    }
+
+    static byte[] featuredFeed(int articles, int historyLength, long seed) {
+        Random random = new Random(seed);
+        StringBuilder json = new StringBuilder(articles * 2048);
+
+        json.append("{\"tfa\":");
+        appendPage(json, "Featured_article", random, historyLength);
+
+        json.append(",\"mostread\":{\"date\":\"2025-01-01Z\",\"articles\":[");
+        for (int i = 0; i < articles; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendPage(json, "Article_" + i, random, historyLength);
+        }
+        json.append("]}");
+
+        json.append(",\"news\":[");
+        for (int i = 0; i < 5; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"story\":\"").append("Lorem ipsum dolor sit amet. ".repeat(8)).append("\",\"links\":[");
+            appendPage(json, "News_" + i, random, 0);
+            json.append("]}");
+        }
+        json.append(']');
+
+        json.append(",\"onthisday\":[");
+        for (int i = 0; i < 20; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"text\":\"Event ").append(i).append("\",\"year\":").append(1900 + i).append(",\"pages\":[");
+            appendPage(json, "Otd_" + i, random, 0);
+            json.append("]}");
+        }
+        json.append("]}");
+
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendPage(StringBuilder json, String title, Random random, int historyLength) {
+        json.append("{\"views\":").append(10_000 + random.nextInt(1_000_000))
+                .append(",\"rank\":").append(random.nextInt(50))
+                .append(",\"title\":\"").append(title)
+                .append("\",\"normalizedtitle\":\"").append(title.replace('_', ' '))
+                .append("\",\"extract\":\"").append("Some extract text for the page. ".repeat(6))
+                .append("\",\"thumbnail\":{\"source\":\"https://upload.wikimedia.org/").append(title)
+                .append(".jpg\",\"width\":320,\"height\":213}")
+                .append(",\"content_urls\":{\"desktop\":{\"page\":\"https://en.wikipedia.org/wiki/").append(title)
+                .append("\",\"revisions\":\"https://en.wikipedia.org/wiki/").append(title)
+                .append("?action=history\"},\"mobile\":{\"page\":\"https://en.m.wikipedia.org/wiki/").append(title)
+                .append("\"}},\"view_history\":[");
+        for (int i = 0; i < historyLength; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"date\":\"2025-01-0").append(i % 9 + 1).append("Z\",\"views\":")
+                    .append(10_000 + random.nextInt(1_000_000)).append('}');
+        }
+        json.append("]}");
+    }
+}
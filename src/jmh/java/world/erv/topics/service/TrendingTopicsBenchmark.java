@@ -0,0 +1,66 @@
+package world.erv.topics.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import world.erv.topics.dto.TopicDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-response work of the trending endpoint once rows are back from the database: building the cache entry's
+ * validator and serializing the list to JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrendingTopicsBenchmark {
+
+    @Param({"50", "500"})
+    public int topics;
+
+    private List<TopicDto> topicDtos;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        topicDtos = new ArrayList<>(topics);
+        for (int i = 0; i < topics; i++) {
+            String title = "Article_" + i;
+            topicDtos.add(new TopicDto(
+                    (long) i,
+                    title,
+                    "https://en.wikipedia.org/wiki/" + title,
+                    10_000L + random.nextInt(1_000_000),
+                    random.nextGaussian() * 1000
+            ));
+        }
+        objectMapper = new ObjectMapper();
+    }
+
+    @Benchmark
+    public String computeEtag() {
+        return TrendingTopicsCache.computeEtag(topicDtos);
+    }
+
+    @Benchmark
+    public byte[] serializeJson() throws Exception {
+        return objectMapper.writeValueAsBytes(topicDtos);
+    }
+}
@@ -0,0 +1,58 @@
+package world.erv.topics.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import world.erv.topics.dto.WikipediaArticleDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of featured feed documents, both in one piece and fed in network-sized chunks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WikipediaFeaturedParserBenchmark {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    @Param({"10", "50", "200"})
+    public int articles;
+
+    private byte[] feed;
+
+    @Setup
+    public void setUp() {
+        feed = FeaturedFeedFixtures.featuredFeed(articles, 60, 42);
+    }
+
+    @Benchmark
+    public List<WikipediaArticleDto> parseWhole() {
+        return WikipediaFeaturedParser.parse(feed);
+    }
+
+    @Benchmark
+    public List<WikipediaArticleDto> parseChunked() {
+        WikipediaFeaturedParser parser = new WikipediaFeaturedParser();
+        List<WikipediaArticleDto> parsed = new ArrayList<>();
+        for (int offset = 0; offset < feed.length; offset += CHUNK_SIZE) {
+            parsed.addAll(parser.feed(feed, offset, Math.min(CHUNK_SIZE, feed.length - offset)));
+        }
+        parsed.addAll(parser.endOfInput());
+        return parsed;
+    }
+}
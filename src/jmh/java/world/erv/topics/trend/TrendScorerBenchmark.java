@@ -0,0 +1,83 @@
+package world.erv.topics.trend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording one observation and scoring it, for each scorer, over histories of varying length.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrendScorerBenchmark {
+
+    @Param({"24", "168", "720"})
+    public int historyLength;
+
+    private ViewRingBuffer history;
+    private final double[] state = new double[1];
+    private long[] observations;
+    private int next;
+
+    private final SlopeTrendScorer slope = new SlopeTrendScorer();
+    private final EwmaVelocityTrendScorer ewmaVelocity = new EwmaVelocityTrendScorer(0.3);
+    private final AccelerationTrendScorer acceleration = new AccelerationTrendScorer(0.3);
+    private final ZScoreTrendScorer zScore = new ZScoreTrendScorer();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        observations = new long[1024];
+        for (int i = 0; i < observations.length; i++) {
+            observations[i] = 10_000 + random.nextInt(1_000_000);
+        }
+        history = new ViewRingBuffer(historyLength);
+        for (int i = 0; i < historyLength; i++) {
+            history.add(observations[i % observations.length]);
+        }
+    }
+
+    private void observe() {
+        history.add(observations[next]);
+        next = (next + 1) & (observations.length - 1);
+    }
+
+    @Benchmark
+    public double slope() {
+        observe();
+        return slope.score(history, state, 0);
+    }
+
+    @Benchmark
+    public double ewmaVelocity() {
+        observe();
+        return ewmaVelocity.score(history, state, 0);
+    }
+
+    @Benchmark
+    public double acceleration() {
+        observe();
+        return acceleration.score(history, state, 0);
+    }
+
+    @Benchmark
+    public double zScore() {
+        observe();
+        return zScore.score(history, state, 0);
+    }
+}
@@ -1,53 +1,94 @@
 package world.erv.topics.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.http.HttpHeaders;
-import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Configuration
-public class AppConfig {
+public class AppConfig implements DisposableBean {
 
     private static final String USER_AGENT = "web:com.erv.topics:v1.0 (ethanrobv@gmail.com)";
 
+    private final Environment environment;
+    private final List<ConnectionProvider> connectionProviders = new CopyOnWriteArrayList<>();
+
+    public AppConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void destroy() {
+        connectionProviders.forEach(ConnectionProvider::dispose);
+    }
+
     @Bean
     public WebClient wikipediaWebClient(WebClient.Builder builder) {
-        final int bufSize = 5 * 1024 * 1024; // 5MB
-        ExchangeStrategies strategies = ExchangeStrategies.builder()
-                .codecs(configurer -> configurer
-                        .defaultCodecs()
-                        .maxInMemorySize(bufSize))
-                .build();
-
-        return builder
-                .baseUrl("https://api.wikimedia.org/feed/v1/wikipedia")
-                .exchangeStrategies(strategies)
-                .defaultHeader(HttpHeaders.USER_AGENT, USER_AGENT)
-                .build();
+        return upstreamClient(builder, "wikipedia");
     }
 
     @Bean
     public WebClient redditWebClient(WebClient.Builder builder) {
-        final int bufSize = 16 * 1024 * 1024; // 16MB
-        ExchangeStrategies strategies = ExchangeStrategies.builder()
-                .codecs(configurer -> configurer
-                        .defaultCodecs()
-                        .maxInMemorySize(bufSize))
-                .build();
-
-        return builder
-                .baseUrl("https://www.reddit.com")
-                .exchangeStrategies(strategies)
-                .defaultHeader(HttpHeaders.USER_AGENT, USER_AGENT)
-                .build();
+        return upstreamClient(builder, "reddit");
     }
 
     @Bean
     public WebClient gdeltWebClient(WebClient.Builder builder) {
-        return builder
-                .baseUrl("https://api.gdeltproject.org/api/v2/doc/doc")
-                .defaultHeader(HttpHeaders.USER_AGENT, USER_AGENT)
+        return upstreamClient(builder, "gdelt");
+    }
+
+    /**
+     * Builds a client for the upstream configured under {@code upstreams.<name>}, with its own connection pool.
+     * Pool gauges are published as {@code reactor.netty.connection.provider.*} and request timings as
+     * {@code reactor.netty.http.client.*}, both tagged with the upstream's name.
+     */
+    private WebClient upstreamClient(WebClient.Builder builder, String name) {
+        UpstreamProfile profile = UpstreamProfile.bind(environment, name);
+        if (profile.baseUrl() == null) {
+            throw new IllegalStateException("upstreams." + name + ".base-url is not set");
+        }
+
+        ConnectionProvider connectionProvider = ConnectionProvider.builder(name)
+                .maxConnections(profile.maxConnections())
+                .pendingAcquireMaxCount(profile.pendingAcquireMaxCount())
+                .pendingAcquireTimeout(profile.pendingAcquireTimeout())
+                .maxIdleTime(profile.maxIdleTime())
+                .maxLifeTime(profile.maxLifeTime())
+                .evictInBackground(profile.evictInBackground())
+                .metrics(true)
                 .build();
+        connectionProviders.add(connectionProvider);
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Math.toIntExact(profile.connectTimeout().toMillis()))
+                .responseTimeout(profile.responseTimeout())
+                .compress(profile.compress())
+                // Every request to an upstream shares one tag value, keeping the metrics' cardinality fixed
+                .metrics(true, uri -> name);
+        if (profile.http2() && profile.baseUrl().startsWith("https:")) {
+            // HTTP/2 is negotiated through ALPN, so it needs TLS configured up front
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+
+        WebClient.Builder upstreamBuilder = builder
+                .baseUrl(profile.baseUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .defaultHeader(HttpHeaders.USER_AGENT, USER_AGENT);
+        if (profile.maxInMemorySize() != null) {
+            upstreamBuilder.codecs(configurer -> configurer
+                    .defaultCodecs()
+                    .maxInMemorySize(Math.toIntExact(profile.maxInMemorySize().toBytes())));
+        }
+        return upstreamBuilder.build();
     }
 }
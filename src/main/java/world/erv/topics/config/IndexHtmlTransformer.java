@@ -0,0 +1,94 @@
+package world.erv.topics.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.Resource;
+import org.springframework.web.reactive.resource.ResourceTransformer;
+import org.springframework.web.reactive.resource.ResourceTransformerChain;
+import org.springframework.web.reactive.resource.ResourceUrlProvider;
+import org.springframework.web.reactive.resource.TransformedResource;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Rewrites {@code index.html}'s relative {@code src} and {@code href} references to scripts and stylesheets into
+ * their hashed {@link StaticResourceConfig#ASSETS_PATH} URLs. Modules import each other by plain relative names, so
+ * an import map sending each module's unhashed URL to its hashed one is added as well; that leaves the modules'
+ * bytes, and so their hashes, untouched.
+ */
+final class IndexHtmlTransformer implements ResourceTransformer {
+
+    private static final Pattern ASSET_REFERENCE = Pattern.compile("(src|href)=\"([\\w.-]+\\.(?:js|css))\"");
+
+    private final ObjectProvider<ResourceUrlProvider> resourceUrlProvider;
+    private final List<String> moduleNames;
+
+    IndexHtmlTransformer(ObjectProvider<ResourceUrlProvider> resourceUrlProvider, List<String> moduleNames) {
+        this.resourceUrlProvider = resourceUrlProvider;
+        this.moduleNames = moduleNames;
+    }
+
+    @Override
+    public Mono<Resource> transform(ServerWebExchange exchange, Resource resource, ResourceTransformerChain chain) {
+        return chain.transform(exchange, resource).flatMap(transformed -> {
+            if (!"index.html".equals(transformed.getFilename())) {
+                return Mono.just(transformed);
+            }
+
+            String html;
+            try {
+                html = transformed.getContentAsString(StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                return Mono.error(new UncheckedIOException(e));
+            }
+
+            Set<String> names = new LinkedHashSet<>(moduleNames);
+            Matcher references = ASSET_REFERENCE.matcher(html);
+            while (references.find()) {
+                names.add(references.group(2));
+            }
+
+            String contextPath = exchange.getRequest().getPath().contextPath().value();
+            return Flux.fromIterable(names)
+                    .flatMap(name -> {
+                        String path = contextPath + StaticResourceConfig.ASSETS_PATH + name;
+                        return resourceUrlProvider.getObject().getForUriString(path, exchange)
+                                .map(hashed -> Map.entry(name, hashed));
+                    })
+                    .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                    .map(hashedUrls -> new TransformedResource(
+                            transformed,
+                            rewrite(html, hashedUrls, contextPath).getBytes(StandardCharsets.UTF_8)
+                    ));
+        });
+    }
+
+    private String rewrite(String html, Map<String, String> hashedUrls, String contextPath) {
+        String rewritten = ASSET_REFERENCE.matcher(html).replaceAll(match -> {
+            String hashed = hashedUrls.get(match.group(2));
+            return hashed == null
+                    ? Matcher.quoteReplacement(match.group())
+                    : match.group(1) + "=\"" + Matcher.quoteReplacement(hashed) + "\"";
+        });
+
+        String imports = moduleNames.stream()
+                .filter(hashedUrls::containsKey)
+                .map(name -> "\"" + contextPath + StaticResourceConfig.ASSETS_PATH + name + "\": \""
+                        + hashedUrls.get(name) + "\"")
+                .collect(Collectors.joining(", "));
+        // Must come before the first module script
+        return rewritten.replace("</head>",
+                "    <script type=\"importmap\">{\"imports\": {" + imports + "}}</script>\n</head>");
+    }
+}
@@ -0,0 +1,113 @@
+package world.erv.topics.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.CacheControl;
+import org.springframework.http.server.RequestPath;
+import org.springframework.web.reactive.config.ResourceHandlerRegistry;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.resource.EncodedResourceResolver;
+import org.springframework.web.reactive.resource.ResourceUrlProvider;
+import org.springframework.web.reactive.resource.VersionResourceResolver;
+import org.springframework.web.server.WebFilter;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the dashboard's scripts and stylesheets under {@value #ASSETS_PATH} with their content hash in the file
+ * name and a year-long immutable cache lifetime, preferring the {@code .br} and {@code .gz} variants written at build
+ * time. The same files requested without the hash are still served, but revalidated on every load, since their
+ * content changes from one release to the next. {@code index.html} is revalidated on every load too and has its
+ * references, and an import map covering the modules' own relative imports, rewritten to the hashed URLs.
+ */
+@Configuration
+public class StaticResourceConfig implements WebFluxConfigurer {
+
+    static final String ASSETS_PATH = "/assets/";
+    private static final String STATIC_LOCATION = "classpath:/static/";
+    // The MD5 hex digest VersionResourceResolver's content strategy inserts before the extension
+    private static final Pattern VERSIONED_NAME = Pattern.compile("-[0-9a-f]{32}\\.[^/]+$");
+
+    private final ObjectProvider<ResourceUrlProvider> resourceUrlProvider;
+
+    public StaticResourceConfig(ObjectProvider<ResourceUrlProvider> resourceUrlProvider) {
+        this.resourceUrlProvider = resourceUrlProvider;
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler(ASSETS_PATH + "**")
+                .addResourceLocations(STATIC_LOCATION)
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .resourceChain(true)
+                // Resolves the hashed name to the file first, then looks for a precompressed sibling of it
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+
+        // Never precompressed, since its content only exists after the transform
+        registry.addResourceHandler("/index.html")
+                .addResourceLocations(STATIC_LOCATION)
+                .setCacheControl(CacheControl.noCache())
+                .resourceChain(true)
+                .addTransformer(new IndexHtmlTransformer(resourceUrlProvider, moduleNames()));
+    }
+
+    /**
+     * Routes {@code /} to the transformed {@code index.html} instead of the welcome page, which would serve the file
+     * as is.
+     */
+    @Bean
+    public WebFilter indexHtmlWebFilter() {
+        return (exchange, chain) -> {
+            RequestPath path = exchange.getRequest().getPath();
+            if (!"/".equals(path.pathWithinApplication().value())) {
+                return chain.filter(exchange);
+            }
+            return chain.filter(exchange.mutate()
+                    .request(exchange.getRequest().mutate().path(path.contextPath().value() + "/index.html").build())
+                    .build());
+        };
+    }
+
+    /**
+     * Replaces the immutable lifetime the assets handler sets with {@code no-cache} when the requested name carries
+     * no content hash.
+     */
+    @Bean
+    public WebFilter unversionedAssetsWebFilter() {
+        return (exchange, chain) -> {
+            String path = exchange.getRequest().getPath().pathWithinApplication().value();
+            if (!path.startsWith(ASSETS_PATH) || VERSIONED_NAME.matcher(path).find()) {
+                return chain.filter(exchange);
+            }
+            // Runs after the handler has set its headers, just before they're written
+            exchange.getResponse().beforeCommit(() -> {
+                exchange.getResponse().getHeaders().setCacheControl(CacheControl.noCache());
+                return Mono.empty();
+            });
+            return chain.filter(exchange);
+        };
+    }
+
+    private static List<String> moduleNames() {
+        try {
+            return Arrays.stream(new PathMatchingResourcePatternResolver().getResources(STATIC_LOCATION + "*.js"))
+                    .map(Resource::getFilename)
+                    .filter(Objects::nonNull)
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package world.erv.topics.config;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.core.env.Environment;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Connection settings for one upstream API, bound from {@code upstreams.<name>.*}. Each upstream gets its own
+ * connection pool so a slow one can't starve the others.
+ *
+ * @param maxConnections         connections the pool may open to the upstream
+ * @param pendingAcquireMaxCount requests that may wait for a connection before new ones are rejected
+ * @param pendingAcquireTimeout  how long a request waits for a connection
+ * @param maxIdleTime            idle connections older than this are closed
+ * @param maxLifeTime            connections older than this are closed once released
+ * @param evictInBackground      how often idle and expired connections are swept; zero sweeps only on acquire
+ * @param connectTimeout         TCP connect timeout
+ * @param responseTimeout        maximum time between request sent and response headers, and between reads
+ * @param compress               whether to request gzip and decompress responses
+ * @param http2                  whether to negotiate HTTP/2 over TLS, falling back to HTTP/1.1
+ * @param maxInMemorySize        largest body a codec may buffer, or null for the codec default
+ */
+public record UpstreamProfile(
+        String baseUrl,
+        @DefaultValue("16") int maxConnections,
+        @DefaultValue("64") int pendingAcquireMaxCount,
+        @DefaultValue("PT10S") Duration pendingAcquireTimeout,
+        @DefaultValue("PT30S") Duration maxIdleTime,
+        @DefaultValue("PT5M") Duration maxLifeTime,
+        @DefaultValue("PT30S") Duration evictInBackground,
+        @DefaultValue("PT5S") Duration connectTimeout,
+        @DefaultValue("PT30S") Duration responseTimeout,
+        @DefaultValue("true") boolean compress,
+        @DefaultValue("true") boolean http2,
+        DataSize maxInMemorySize
+) {
+
+    public static UpstreamProfile bind(Environment environment, String name) {
+        return Binder.get(environment)
+                .bindOrCreate("upstreams." + name, UpstreamProfile.class);
+    }
+}
@@ -0,0 +1,59 @@
+package world.erv.topics.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import world.erv.topics.dto.BackfillStatusDto;
+import world.erv.topics.service.WikipediaBackfillService;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Operator endpoints. They are unauthenticated, so they are only mapped when {@code features.admin.enabled} is set,
+ * which should be done only where the API port isn't publicly reachable.
+ */
+@RestController
+@RequestMapping("/api/admin")
+@ConditionalOnProperty(prefix = "features", name = {"wikipedia-service.enabled", "admin.enabled"}, havingValue = "true")
+public class AdminController {
+
+    private final WikipediaBackfillService wikipediaBackfillService;
+
+    public AdminController(WikipediaBackfillService wikipediaBackfillService) {
+        this.wikipediaBackfillService = wikipediaBackfillService;
+    }
+
+    /**
+     * Starts backfilling the featured feed for {@code [from, to]} (ISO dates; {@code to} defaults to yesterday).
+     * Dates that already have a checkpoint are skipped, so repeating a request resumes it, and so are dates the live
+     * ingestion has already written history for.
+     */
+    @PostMapping("/backfill")
+    public ResponseEntity<BackfillStatusDto> startBackfill(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        LocalDate end = to != null ? to : LocalDate.now(ZoneId.of("UTC")).minusDays(1);
+        if (from.isAfter(end)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must not be after 'to'");
+        }
+
+        if (!wikipediaBackfillService.start(from, end)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A backfill is already running");
+        }
+        return ResponseEntity.accepted().body(wikipediaBackfillService.getStatus());
+    }
+
+    @GetMapping("/backfill")
+    public BackfillStatusDto getBackfillStatus() {
+        return wikipediaBackfillService.getStatus();
+    }
+}
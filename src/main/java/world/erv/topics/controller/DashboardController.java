@@ -1,85 +1,101 @@
 package world.erv.topics.controller;
 
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import world.erv.topics.dto.RisingTopicDto;
 import world.erv.topics.dto.TopicDto;
-import world.erv.topics.model.Topic;
-import world.erv.topics.model.WikipediaViewHistory;
-import world.erv.topics.repository.TopicRepository;
+import world.erv.topics.model.RisingWindow;
+import world.erv.topics.service.TrendingTopicsBroadcaster;
+import world.erv.topics.service.TrendingTopicsCache;
 import world.erv.topics.service.WikipediaService;
 
 import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api")
 @ConditionalOnProperty(name = "features.wikipedia-service.enabled", havingValue = "true")
 public class DashboardController {
 
-    private final TopicRepository topicRepository;
+    private static final int MAX_RISING_TOPICS = 100;
+
+    private final TrendingTopicsCache trendingTopicsCache;
+    private final TrendingTopicsBroadcaster trendingTopicsBroadcaster;
     private final WikipediaService wikipediaService;
 
     public DashboardController(
-            TopicRepository topicRepository,
+            TrendingTopicsCache trendingTopicsCache,
+            TrendingTopicsBroadcaster trendingTopicsBroadcaster,
             WikipediaService wikipediaService
     ) {
-        this.topicRepository = topicRepository;
+        this.trendingTopicsCache = trendingTopicsCache;
+        this.trendingTopicsBroadcaster = trendingTopicsBroadcaster;
         this.wikipediaService = wikipediaService;
     }
 
     /**
-     * Returns the top 50 trending topics for a specific date.
+     * Returns the top 50 trending topics for a specific date (UTC). Responses carry an ETag and Last-Modified, and
+     * conditional requests for a cached day are answered with a 304 from the cached entry. An entry last checked more
+     * than {@code wikipedia.trending-cache.revalidate-after} ago first costs one query for the day's row count and
+     * latest insert, and is reloaded before answering if either has changed.
      */
     @GetMapping("/trending-topics/{year}/{month}/{day}")
-    public Mono<List<TopicDto>> getTrendingTopics(
+    public Mono<ResponseEntity<List<TopicDto>>> getTrendingTopics(
             @PathVariable int year,
             @PathVariable int month,
             @PathVariable int day
     ) {
-        // 1. Calculate the Instant range for the requested day (UTC)
         LocalDate date = LocalDate.of(year, month, day);
-        var start = date.atStartOfDay(ZoneId.of("UTC")).toInstant();
-        var end = date.plusDays(1).atStartOfDay(ZoneId.of("UTC")).toInstant();
 
-        // 2. Get the history records (Views + Trend + TopicID)
-        return wikipediaService.getMostViewedArticlesInInstantRange(50, start, end)
-                .collectList()
-                .flatMap(histories -> {
-                    if (histories.isEmpty()) {
-                        return Mono.just(List.of());
-                    }
+        // 304s are produced by the result handler from the validators set here
+        return trendingTopicsCache.get(date)
+                .map(entry -> ResponseEntity.ok()
+                        .eTag(entry.etag())
+                        .lastModified(entry.lastModified())
+                        .cacheControl(CacheControl.noCache())
+                        // The body's encoding follows the Accept header
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(entry.topics()));
+    }
 
-                    // 3. Extract Topic IDs to fetch names/URLs
-                    Set<Long> topicIds = histories.stream()
-                            .map(WikipediaViewHistory::getTopicId)
-                            .collect(Collectors.toSet());
+    /**
+     * Returns the {@code k} topics whose views grew the most, relative to their starting point, over the sliding
+     * window ({@code 6h}, {@code 24h} or {@code 7d}) ending now. Answered from in-memory counters.
+     */
+    @GetMapping("/rising")
+    public Flux<RisingTopicDto> getRisingTopics(
+            @RequestParam(defaultValue = "24h") String window,
+            @RequestParam(defaultValue = "20") int k
+    ) {
+        RisingWindow risingWindow;
+        try {
+            risingWindow = RisingWindow.fromLabel(window);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
 
-                    // 4. Fetch Topics and Map them by ID
-                    return topicRepository.findAllById(topicIds)
-                            .collectMap(Topic::getId)
-                            .map(topicMap -> {
-                                // 5. Merge History + Topic into DTOs
-                                return histories.stream()
-                                        .filter(h -> topicMap.containsKey(h.getTopicId()))
-                                        .map(h -> {
-                                            Topic t = topicMap.get(h.getTopicId());
-                                            return new TopicDto(
-                                                    t.getId(),
-                                                    t.getTitle(),
-                                                    t.getWikipediaUrl(),
-                                                    h.getViews(),
-                                                    h.getViewTrend()
-                                            );
-                                        })
-                                        .collect(Collectors.toList());
-                            });
-                });
+        return wikipediaService.getRisingTopics(risingWindow, Math.clamp(k, 1, MAX_RISING_TOPICS));
+    }
+
+    /**
+     * Streams today's trending topics: a {@code ranking} event with the full list on connect, then a {@code diff}
+     * event after each ingestion run.
+     */
+    @GetMapping(path = "/trending-topics/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamTrendingTopics() {
+        return trendingTopicsBroadcaster.subscribe();
     }
 }
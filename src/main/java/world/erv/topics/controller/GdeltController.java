@@ -0,0 +1,35 @@
+package world.erv.topics.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import world.erv.topics.service.GdeltService;
+
+@RestController
+@RequestMapping("/api")
+@ConditionalOnProperty(name = "features.gdelt-service.enabled", havingValue = "true")
+public class GdeltController {
+
+    private final GdeltService gdeltService;
+
+    public GdeltController(GdeltService gdeltService) {
+        this.gdeltService = gdeltService;
+    }
+
+    /**
+     * Returns the most recent tone chart for a topic. The stored JSON is written out byte for byte.
+     */
+    @GetMapping("/article-tone-chart/{id}")
+    public Mono<ResponseEntity<byte[]>> getArticleToneChart(@PathVariable long id) {
+        return gdeltService.getToneChart(id)
+                .map(json -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(json))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,146 @@
+package world.erv.topics.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import world.erv.topics.dto.RelatedTopicDto;
+import world.erv.topics.dto.TopicBundleDto;
+import world.erv.topics.dto.TopicHistoryDto;
+import world.erv.topics.dto.TopicSearchResultDto;
+import world.erv.topics.model.RollupResolution;
+import world.erv.topics.service.RelatedTopicsService;
+import world.erv.topics.service.TopicBundleService;
+import world.erv.topics.service.TopicHistoryService;
+import world.erv.topics.service.TopicSearchService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/topics")
+@ConditionalOnProperty(name = "features.wikipedia-service.enabled", havingValue = "true")
+public class TopicController {
+
+    private static final Duration DEFAULT_HISTORY_RANGE = Duration.ofDays(30);
+    private static final int MAX_SEARCH_RESULTS = 50;
+    private static final int MAX_RELATED_TOPICS = 50;
+    private static final int MAX_BUNDLES = 50;
+
+    private final TopicHistoryService topicHistoryService;
+    private final TopicSearchService topicSearchService;
+    private final RelatedTopicsService relatedTopicsService;
+    private final TopicBundleService topicBundleService;
+
+    public TopicController(
+            TopicHistoryService topicHistoryService,
+            TopicSearchService topicSearchService,
+            RelatedTopicsService relatedTopicsService,
+            TopicBundleService topicBundleService
+    ) {
+        this.topicHistoryService = topicHistoryService;
+        this.topicSearchService = topicSearchService;
+        this.relatedTopicsService = relatedTopicsService;
+        this.topicBundleService = topicBundleService;
+    }
+
+    /**
+     * Returns topics with a title word starting with {@code q}, ignoring case and accents, or with one close to it
+     * when nothing matches exactly. Served from memory for search-as-you-type.
+     */
+    @GetMapping("/search")
+    public List<TopicSearchResultDto> searchTopics(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return topicSearchService.search(q, Math.clamp(limit, 1, MAX_SEARCH_RESULTS));
+    }
+
+    /**
+     * Returns a topic's view history between two ISO-8601 instants (default: the last 30 days), at the given
+     * resolution ({@code hour}, {@code day} or {@code week}) or at one chosen to fit the range.
+     */
+    @GetMapping("/{id}/history")
+    public Mono<TopicHistoryDto> getTopicHistory(
+            @PathVariable long id,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String resolution
+    ) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_HISTORY_RANGE);
+        if (!start.isBefore(end)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be before 'to'");
+        }
+
+        RollupResolution rollupResolution = null;
+        if (resolution != null) {
+            try {
+                rollupResolution = RollupResolution.fromUnit(resolution);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
+
+        return topicHistoryService.getTopicHistory(id, start, end, rollupResolution);
+    }
+
+    /**
+     * Returns the topics whose hourly views moved most closely with this topic's over {@code related.window},
+     * strongest correlation first. Recomputed hourly.
+     */
+    @GetMapping("/{id}/related")
+    public Flux<RelatedTopicDto> getRelatedTopics(
+            @PathVariable long id,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return relatedTopicsService.getRelatedTopics(id, Math.clamp(limit, 1, MAX_RELATED_TOPICS));
+    }
+
+    /**
+     * Returns everything the detail view shows for a topic in one response: the topic itself, its latest views, tone
+     * chart and Reddit summary. {@code fields} ({@code topic}, {@code views}, {@code tone}, {@code summary}; default:
+     * all) skips the parts the client doesn't need.
+     */
+    @GetMapping("/{id}/bundle")
+    public Mono<ResponseEntity<TopicBundleDto>> getTopicBundle(
+            @PathVariable long id,
+            @RequestParam(required = false) List<String> fields
+    ) {
+        return topicBundleService.getBundle(id, parseFields(fields))
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Returns the bundles of up to 50 topics in the order of {@code ids}, leaving out topics that don't exist, so a
+     * list view can prefetch its top entries in one request.
+     */
+    @GetMapping("/bundle")
+    public Flux<TopicBundleDto> getTopicBundles(
+            @RequestParam List<Long> ids,
+            @RequestParam(required = false) List<String> fields
+    ) {
+        if (ids.size() > MAX_BUNDLES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_BUNDLES + " ids are allowed");
+        }
+        return topicBundleService.getBundles(ids, parseFields(fields));
+    }
+
+    private static Set<TopicBundleService.Part> parseFields(List<String> fields) {
+        try {
+            return TopicBundleService.Part.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
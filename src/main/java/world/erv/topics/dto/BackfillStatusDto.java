@@ -0,0 +1,18 @@
+package world.erv.topics.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+public record BackfillStatusDto(
+        boolean running,
+        LocalDate from,
+        LocalDate to,
+        int totalDays,
+        int skippedDays,
+        int completedDays,
+        int failedDays,
+        long articles,
+        Instant startedAt,
+        Instant finishedAt
+) {
+}
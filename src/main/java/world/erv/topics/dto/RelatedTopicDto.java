@@ -0,0 +1,10 @@
+package world.erv.topics.dto;
+
+public record RelatedTopicDto(
+        Long id,
+        String title,
+        String wikipediaUrl,
+        Double correlation,
+        Integer overlapDays
+) {
+}
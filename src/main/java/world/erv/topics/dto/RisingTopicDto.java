@@ -0,0 +1,12 @@
+package world.erv.topics.dto;
+
+public record RisingTopicDto(
+        Long id,
+        String title,
+        String wikipediaUrl,
+        Long views,
+        Long baselineViews,
+        Long growth,
+        Double growthRatio
+) {
+}
@@ -0,0 +1,33 @@
+package world.erv.topics.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Instant;
+
+/**
+ * Everything the detail view shows for a topic. Parts that weren't requested, or that don't exist yet, are omitted.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TopicBundleDto(
+        Long id,
+        String title,
+        String wikipediaUrl,
+        Views views,
+        JsonNode toneChart,
+        Summary redditSummary
+) {
+
+    public record Views(
+            Long views,
+            Double viewTrend,
+            Instant observedAt
+    ) {
+    }
+
+    public record Summary(
+            String summary,
+            Instant createdAt
+    ) {
+    }
+}
@@ -0,0 +1,13 @@
+package world.erv.topics.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public record TopicHistoryDto(
+        Long topicId,
+        String resolution,
+        Instant from,
+        Instant to,
+        List<TopicHistoryPointDto> points
+) {
+}
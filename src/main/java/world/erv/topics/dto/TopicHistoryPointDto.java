@@ -0,0 +1,16 @@
+package world.erv.topics.dto;
+
+import java.time.Instant;
+
+public record TopicHistoryPointDto(
+        Instant bucketStart,
+        Long minViews,
+        Long maxViews,
+        Long lastViews,
+        Double avgViews,
+        Double minTrend,
+        Double maxTrend,
+        Double lastTrend,
+        Double avgTrend
+) {
+}
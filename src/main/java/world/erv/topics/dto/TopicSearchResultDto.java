@@ -0,0 +1,7 @@
+package world.erv.topics.dto;
+
+public record TopicSearchResultDto(
+        Long id,
+        String title
+) {
+}
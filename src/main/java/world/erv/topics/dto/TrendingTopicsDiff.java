@@ -0,0 +1,18 @@
+package world.erv.topics.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Changes that turn the ranking at {@code previousVersion} into the ranking at {@code version}: topics that are new
+ * or whose values changed, topics that dropped out, and the resulting order of topic ids.
+ */
+public record TrendingTopicsDiff(
+        long version,
+        long previousVersion,
+        LocalDate date,
+        List<TopicDto> upserted,
+        List<Long> removed,
+        List<Long> ranking
+) {
+}
@@ -0,0 +1,11 @@
+package world.erv.topics.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record TrendingTopicsSnapshot(
+        long version,
+        LocalDate date,
+        List<TopicDto> topics
+) {
+}
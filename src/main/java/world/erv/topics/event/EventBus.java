@@ -0,0 +1,326 @@
+package world.erv.topics.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.observability.micrometer.Micrometer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import world.erv.topics.repository.EventOutboxRepository;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process event bus backed by the {@code event_outbox} table. {@link #publish(Object)} stores the event, with a
+ * delivery per consumer, inside the caller's transaction and, once it commits, hands it to each consumer's bounded
+ * queue without waiting for the consumer. A delivery that fails is retried with an exponential backoff, and one that
+ * couldn't be queued, or was lost with the instance handling it, is picked up again once its lease runs out. Every
+ * instance sweeps the outbox for such deliveries, claiming them so that no two instances deliver the same one, and
+ * keeps renewing the lease on every delivery it holds in a queue or is running, however long that takes.
+ */
+@Component
+public class EventBus implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(EventBus.class);
+
+    private record Delivery(long outboxId, Object event, Observation parent) {
+    }
+
+    private record Claim(long outboxId, String consumer) {
+    }
+
+    private final class ConsumerQueue {
+        final EventConsumer<Object> consumer;
+        final BlockingQueue<Delivery> queue;
+        final Sinks.Many<Delivery> sink;
+
+        ConsumerQueue(EventConsumer<Object> consumer) {
+            this.consumer = consumer;
+            this.queue = new ArrayBlockingQueue<>(consumer.queueCapacity());
+            this.sink = Sinks.many().unicast().onBackpressureBuffer(queue);
+        }
+
+        // The sink rejects concurrent emitters, and publishing threads aren't serialized otherwise
+        synchronized boolean offer(Delivery delivery) {
+            return sink.tryEmitNext(delivery).isSuccess();
+        }
+
+        Disposable start() {
+            return sink.asFlux()
+                    .flatMap(delivery -> deliver(this, delivery), consumer.concurrency())
+                    .subscribe();
+        }
+    }
+
+    // Resolved once every singleton exists, since consumers may themselves depend on publishers
+    private final ObjectProvider<EventConsumer<?>> consumers;
+    private final EventOutboxRepository eventOutboxRepository;
+    private final ObjectMapper objectMapper;
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, List<ConsumerQueue>> queuesByType = new HashMap<>();
+    private final List<ConsumerQueue> queues = new ArrayList<>();
+    private final Disposable.Composite subscriptions = Disposables.composite();
+    // Deliveries queued or running on this instance, whose leases it keeps renewing
+    private final Set<Claim> claims = ConcurrentHashMap.newKeySet();
+    private final Duration deliveryLease;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final int maxAttempts;
+    // Unique per run, so a restarted instance never renews the claims its previous run left behind
+    private final String holder = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    public EventBus(
+            ObjectProvider<EventConsumer<?>> consumers,
+            EventOutboxRepository eventOutboxRepository,
+            ObjectMapper objectMapper,
+            ObservationRegistry observationRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${events.delivery-lease:PT2M}") Duration deliveryLease,
+            @Value("${events.retry.min-backoff:PT30S}") Duration minBackoff,
+            @Value("${events.retry.max-backoff:PT1H}") Duration maxBackoff,
+            @Value("${events.retry.max-attempts:10}") int maxAttempts
+    ) {
+        this.consumers = consumers;
+        this.eventOutboxRepository = eventOutboxRepository;
+        this.objectMapper = objectMapper;
+        this.observationRegistry = observationRegistry;
+        this.meterRegistry = meterRegistry;
+        this.deliveryLease = deliveryLease;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void afterSingletonsInstantiated() {
+        for (EventConsumer<?> consumer : consumers.orderedStream().toList()) {
+            ConsumerQueue consumerQueue = new ConsumerQueue((EventConsumer<Object>) consumer);
+            if (queues.stream().anyMatch(queue -> queue.consumer.name().equals(consumer.name()))) {
+                throw new IllegalStateException("Duplicate event consumer name: " + consumer.name());
+            }
+            queues.add(consumerQueue);
+            queuesByType.computeIfAbsent(consumer.eventType(), type -> new ArrayList<>()).add(consumerQueue);
+            meterRegistry.gaugeCollectionSize(
+                    "events.queue.size",
+                    Tags.of("consumer", consumer.name()),
+                    consumerQueue.queue
+            );
+            subscriptions.add(consumerQueue.start());
+        }
+        subscriptions.add(renewClaims());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.dispose();
+    }
+
+    /**
+     * Stores the event in the outbox and delivers it to every consumer of its type once the surrounding
+     * transaction commits, or right away when there is none. Completes as soon as the event is stored.
+     */
+    public Mono<Void> publish(Object event) {
+        List<ConsumerQueue> targets = queuesByType.getOrDefault(event.getClass(), List.of());
+        if (targets.isEmpty()) {
+            return Mono.empty();
+        }
+
+        List<String> consumerNames = targets.stream().map(target -> target.consumer.name()).toList();
+        return Mono.deferContextual(context -> {
+            Observation parent = context.getOrDefault(ObservationThreadLocalAccessor.KEY, null);
+            log.info("[EVENT: Publishing {}]", event);
+
+            Instant createdAt = Instant.now();
+            return Mono.fromCallable(() -> objectMapper.writeValueAsString(event))
+                    // This instance delivers the event itself, so it claims every delivery up front
+                    .flatMap(payload -> eventOutboxRepository.insert(
+                            event.getClass().getName(),
+                            payload,
+                            consumerNames,
+                            createdAt,
+                            createdAt.plus(deliveryLease),
+                            holder
+                    ))
+                    .flatMap(outboxId -> afterCommit(() -> {
+                        // Consumers run on other threads; this span is the parent they continue the trace from
+                        Observation fanout = Observation.createNotStarted("events.fanout", observationRegistry)
+                                .lowCardinalityKeyValue("event", event.getClass().getSimpleName())
+                                .parentObservation(parent);
+                        fanout.observe(() -> {
+                            Delivery delivery = new Delivery(outboxId, event, fanout);
+                            targets.forEach(target -> enqueue(target, delivery));
+                        });
+                    }));
+        });
+    }
+
+    /**
+     * Claims and queues the deliveries that are due: ones that failed and have waited out their backoff, and ones
+     * whose lease ran out before they were delivered. Only as many are claimed as each consumer's queue has room
+     * for, and only for consumers registered on this instance.
+     */
+    @Scheduled(
+            initialDelayString = "${events.sweep-interval:PT30S}",
+            fixedDelayString = "${events.sweep-interval:PT30S}"
+    )
+    public Mono<Void> sweepUndelivered() {
+        return Flux.fromIterable(queues)
+                .concatMap(target -> {
+                    int room = target.queue.remainingCapacity();
+                    if (room == 0) {
+                        return Mono.just(0L);
+                    }
+                    return eventOutboxRepository.claimDue(target.consumer.name(), room, deliveryLease, holder)
+                            .concatMap(entry -> redeliver(target, entry).thenReturn(entry))
+                            .count();
+                })
+                .reduce(0L, Long::sum)
+                .doOnNext(count -> {
+                    if (count > 0) {
+                        log.info("Redelivering {} outbox events", count);
+                    }
+                })
+                .onErrorResume(error -> {
+                    log.error("Failed to sweep the event outbox", error);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Renews the lease on the deliveries queued or running here three times per lease, so only a delivery whose
+     * instance has died or lost the database for a whole lease is claimed by another.
+     */
+    private Disposable renewClaims() {
+        return Flux.interval(deliveryLease.dividedBy(3))
+                .concatMap(tick -> {
+                    List<Claim> held = List.copyOf(claims);
+                    if (held.isEmpty()) {
+                        return Mono.empty();
+                    }
+                    return eventOutboxRepository.renewClaims(
+                                    held.stream().map(Claim::outboxId).toList(),
+                                    held.stream().map(Claim::consumer).toList(),
+                                    holder,
+                                    deliveryLease
+                            )
+                            .onErrorResume(error -> {
+                                log.error("Failed to renew the leases on claimed outbox events", error);
+                                return Mono.empty();
+                            });
+                })
+                .subscribe();
+    }
+
+    private Mono<Void> redeliver(ConsumerQueue target, EventOutboxRepository.Entry entry) {
+        return Mono.fromCallable(() -> objectMapper.readValue(entry.payload(), target.consumer.eventType()))
+                .doOnNext(event -> enqueue(target, new Delivery(entry.id(), event, null)))
+                .onErrorResume(error -> retryLater(target, entry.id(), error))
+                .then();
+    }
+
+    private void enqueue(ConsumerQueue target, Delivery delivery) {
+        Claim claim = new Claim(delivery.outboxId(), target.consumer.name());
+        claims.add(claim);
+        if (target.offer(delivery)) {
+            return;
+        }
+        claims.remove(claim);
+
+        log.warn("Queue for event consumer '{}' is full; outbox event {} will be picked up by a later sweep",
+                target.consumer.name(), delivery.outboxId());
+        eventOutboxRepository.release(delivery.outboxId(), target.consumer.name())
+                .subscribe(null, error -> log.error("Failed to release outbox event {} for '{}'",
+                        delivery.outboxId(), target.consumer.name(), error));
+    }
+
+    private Mono<Void> deliver(ConsumerQueue target, Delivery delivery) {
+        String name = target.consumer.name();
+
+        return Mono.defer(() -> target.consumer.consume(delivery.event()))
+                .name("events.consume")
+                .tag("consumer", name)
+                .tap(Micrometer.observation(observationRegistry))
+                .contextWrite(context -> delivery.parent() == null
+                        ? context
+                        : context.put(ObservationThreadLocalAccessor.KEY, delivery.parent()))
+                .then(Mono.defer(() -> eventOutboxRepository.markDelivered(delivery.outboxId(), name)))
+                .onErrorResume(error -> retryLater(target, delivery.outboxId(), error))
+                .doFinally(signal -> claims.remove(new Claim(delivery.outboxId(), name)));
+    }
+
+    /**
+     * Schedules another attempt after a backoff, or gives the delivery up once it has failed
+     * {@code events.retry.max-attempts} times.
+     */
+    private Mono<Void> retryLater(ConsumerQueue target, long outboxId, Throwable error) {
+        String name = target.consumer.name();
+
+        return eventOutboxRepository.retryLater(outboxId, name, minBackoff, maxBackoff)
+                .flatMap(attempts -> {
+                    if (attempts < maxAttempts) {
+                        log.warn("Event consumer '{}' failed on outbox event {} (attempt {} of {}); retrying later",
+                                name, outboxId, attempts, maxAttempts, error);
+                        return Mono.<Void>empty();
+                    }
+                    log.error("Event consumer '{}' failed on outbox event {} {} times; giving up on it",
+                            name, outboxId, attempts, error);
+                    return eventOutboxRepository.markDelivered(outboxId, name);
+                })
+                .onErrorResume(retryError -> {
+                    // The lease still runs out, so a later sweep picks the delivery up regardless
+                    log.error("Failed to schedule a retry of outbox event {} for '{}'", outboxId, name, retryError);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or immediately outside a transaction.
+     */
+    private static Mono<Void> afterCommit(Runnable action) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .flatMap(synchronizationManager -> {
+                    if (!synchronizationManager.isSynchronizationActive()) {
+                        return Mono.<Void>fromRunnable(action);
+                    }
+                    synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public Mono<Void> afterCommit() {
+                            return Mono.fromRunnable(action);
+                        }
+                    });
+                    return Mono.<Void>empty();
+                })
+                .onErrorResume(NoTransactionException.class, error -> Mono.fromRunnable(action));
+    }
+}
@@ -0,0 +1,31 @@
+package world.erv.topics.event;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Handles events of one type delivered by the {@link EventBus}. Each consumer gets its own bounded queue and is
+ * handed at most {@link #concurrency()} events at a time.
+ */
+public interface EventConsumer<E> {
+
+    /**
+     * Identifies the consumer in the outbox; must stay stable across releases.
+     */
+    String name();
+
+    Class<E> eventType();
+
+    /**
+     * Handles one event. The event stays in the outbox, and is redelivered after a backoff, until the returned Mono
+     * completes successfully or {@code events.retry.max-attempts} attempts have failed.
+     */
+    Mono<Void> consume(E event);
+
+    default int queueCapacity() {
+        return 64;
+    }
+
+    default int concurrency() {
+        return 1;
+    }
+}
@@ -8,6 +8,10 @@ public class WikipediaFeaturedFetchEvent {
     private Instant createdAt;
     private List<String> topicTitles;
 
+    // For deserialization when the event is replayed from the outbox
+    public WikipediaFeaturedFetchEvent() {
+    }
+
     public WikipediaFeaturedFetchEvent(Instant createdAt, List<String> topicTitles) {
         this.createdAt = createdAt;
         this.topicTitles = topicTitles;
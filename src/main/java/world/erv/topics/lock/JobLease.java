@@ -0,0 +1,64 @@
+package world.erv.topics.lock;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Proof that this instance holds a job's lock, identified by the fencing token issued when it was acquired.
+ */
+public final class JobLease {
+
+    private static final String FENCING_TOKEN_SQL = "SELECT fencing_token FROM job_leases " +
+            "WHERE job_name = :jobName FOR SHARE";
+
+    private final String jobName;
+    private final long fencingToken;
+    private final DatabaseClient databaseClient;
+    private final Sinks.One<Boolean> lost = Sinks.one();
+
+    JobLease(String jobName, long fencingToken, DatabaseClient databaseClient) {
+        this.jobName = jobName;
+        this.fencingToken = fencingToken;
+        this.databaseClient = databaseClient;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public long getFencingToken() {
+        return fencingToken;
+    }
+
+    /**
+     * Fails unless this lease is still the job's newest. Call it inside the transaction whose writes it protects:
+     * the row stays share-locked until that transaction ends, so a new holder can't take over in between.
+     */
+    public Mono<Void> checkFence() {
+        return databaseClient.sql(FENCING_TOKEN_SQL)
+                .bind("jobName", jobName)
+                .map((row, metadata) -> row.get("fencing_token", Long.class))
+                .one()
+                .filter(current -> current == fencingToken)
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException(
+                        "Lease " + fencingToken + " on job '" + jobName + "' has been superseded")))
+                .then();
+    }
+
+    /**
+     * Emits once the lock has been lost, e.g. because its database session died.
+     */
+    Mono<Boolean> whenLost() {
+        return lost.asMono();
+    }
+
+    void markLost() {
+        lost.tryEmitValue(true);
+    }
+
+    @Override
+    public String toString() {
+        return "JobLease[" + jobName + " #" + fencingToken + "]";
+    }
+}
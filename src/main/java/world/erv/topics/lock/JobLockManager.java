@@ -0,0 +1,164 @@
+package world.erv.topics.lock;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Runs jobs on at most one instance at a time. A job's lock is a Postgres session-level advisory lock held on a
+ * dedicated, unpooled connection, so it is released as soon as that session ends, however the instance dies. The
+ * instance that wins the lock is the job's leader for that run: it is issued a fencing token in {@code job_leases}
+ * and, while the job runs, checks on the lock's session every third of {@code jobs.lock.lease}. The check only reads,
+ * so it never waits on the row locks the job's own fenced transactions hold. Instances that don't get the lock skip
+ * the run and carry on serving reads.
+ */
+@Component
+public class JobLockManager {
+
+    private static final Logger log = LoggerFactory.getLogger(JobLockManager.class);
+
+    // First half of every advisory lock key, keeping this application's locks apart from any others
+    private static final int LOCK_NAMESPACE = 0x746F7073;
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock($1, hashtext($2))";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock($1, hashtext($2))";
+    // A plain read, so it doesn't conflict with the FOR SHARE lock JobLease.checkFence() holds on the same row
+    private static final String CURRENT_TOKEN_SQL = "SELECT fencing_token FROM job_leases WHERE job_name = $1";
+
+    private static final String ACQUIRE_LEASE_SQL = "INSERT INTO job_leases " +
+            "(job_name, holder, fencing_token, acquired_at) " +
+            "VALUES (:jobName, :holder, 1, now()) " +
+            "ON CONFLICT (job_name) DO UPDATE SET " +
+            "holder = EXCLUDED.holder, " +
+            "fencing_token = job_leases.fencing_token + 1, " +
+            "acquired_at = EXCLUDED.acquired_at " +
+            "RETURNING fencing_token";
+
+    private final ConnectionFactory lockConnectionFactory;
+    private final DatabaseClient databaseClient;
+    private final Duration lease;
+    private final String holder = ManagementFactory.getRuntimeMXBean().getName();
+
+    public JobLockManager(
+            ConnectionFactory connectionFactory,
+            DatabaseClient databaseClient,
+            @Value("${jobs.lock.lease:PT1M}") Duration lease
+    ) {
+        // Closing a pooled connection would return it, lock and all, to the pool
+        this.lockConnectionFactory = connectionFactory instanceof Wrapped<?> wrapped
+                && wrapped.unwrap() instanceof ConnectionFactory target
+                ? target
+                : connectionFactory;
+        this.databaseClient = databaseClient;
+        this.lease = lease;
+    }
+
+    /**
+     * Runs the job if no other instance is running it, completing empty without running it otherwise. If the lock
+     * is lost mid-run the job is cancelled; writes it guards with {@link JobLease#checkFence()} are rejected even if
+     * they race the cancellation.
+     */
+    public <T> Mono<T> runExclusive(String jobName, Function<JobLease, Mono<T>> job) {
+        return Mono.usingWhen(
+                Mono.from(lockConnectionFactory.create()),
+                connection -> queryBoolean(connection, TRY_LOCK_SQL, jobName)
+                        .flatMap(locked -> {
+                            if (!locked) {
+                                log.info("Skipping job '{}'; another instance holds its lock", jobName);
+                                return Mono.empty();
+                            }
+
+                            return Mono.usingWhen(
+                                    acquireLease(jobName),
+                                    jobLease -> runWithRenewal(connection, jobLease, job),
+                                    jobLease -> queryBoolean(connection, UNLOCK_SQL, jobName)
+                            );
+                        }),
+                Connection::close
+        );
+    }
+
+    private Mono<JobLease> acquireLease(String jobName) {
+        return databaseClient.sql(ACQUIRE_LEASE_SQL)
+                .bind("jobName", jobName)
+                .bind("holder", holder)
+                .map((row, metadata) -> row.get("fencing_token", Long.class))
+                .one()
+                .map(fencingToken -> new JobLease(jobName, fencingToken, databaseClient))
+                .doOnNext(jobLease -> log.info("Acquired {}", jobLease));
+    }
+
+    private <T> Mono<T> runWithRenewal(Connection connection, JobLease jobLease, Function<JobLease, Mono<T>> job) {
+        Duration checkInterval = lease.dividedBy(3);
+
+        return Mono.defer(() -> {
+            Disposable renewal = Flux.interval(checkInterval)
+                    // A slow check just delays the next one rather than queueing more behind it
+                    .onBackpressureDrop()
+                    .concatMap(tick -> isStillHeld(connection, jobLease)
+                            .elapsed()
+                            .doOnNext(timed -> {
+                                if (timed.getT1() > checkInterval.toMillis()) {
+                                    log.warn("Checking {} took {} ms", jobLease, timed.getT1());
+                                }
+                            })
+                            .map(timed -> timed.getT2())
+                            // Only a session that hasn't answered for a whole lease is given up on
+                            .timeout(lease), 1)
+                    .subscribe(
+                            held -> {
+                                if (!held) {
+                                    jobLease.markLost();
+                                }
+                            },
+                            error -> {
+                                log.warn("Lost the session holding {}", jobLease, error);
+                                jobLease.markLost();
+                            }
+                    );
+
+            return job.apply(jobLease)
+                    .takeUntilOther(jobLease.whenLost()
+                            .doOnNext(lost -> log.warn("Lost {}; cancelling the job", jobLease)))
+                    .doFinally(signal -> renewal.dispose());
+        });
+    }
+
+    /**
+     * Confirms the lock's session is alive, which is what keeps the advisory lock held, by reading the job's current
+     * fencing token over it.
+     *
+     * @return false if a newer lease has taken over the job
+     */
+    private Mono<Boolean> isStillHeld(Connection connection, JobLease jobLease) {
+        return Flux.from(connection.createStatement(CURRENT_TOKEN_SQL)
+                        .bind("$1", jobLease.getJobName())
+                        .execute())
+                .concatMap(result -> result.map((row, metadata) -> row.get(0, Long.class)))
+                .next()
+                .map(current -> current == jobLease.getFencingToken())
+                .defaultIfEmpty(false);
+    }
+
+    private static Mono<Boolean> queryBoolean(Connection connection, String sql, String jobName) {
+        return Flux.from(connection.createStatement(sql)
+                        .bind("$1", LOCK_NAMESPACE)
+                        .bind("$2", jobName)
+                        .execute())
+                .concatMap(result -> result.map((row, metadata) -> row.get(0, Boolean.class)))
+                .next()
+                .defaultIfEmpty(false);
+    }
+}
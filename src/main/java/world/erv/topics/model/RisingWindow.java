@@ -0,0 +1,50 @@
+package world.erv.topics.model;
+
+import java.time.Duration;
+
+/**
+ * Sliding windows over which topic view growth is ranked.
+ */
+public enum RisingWindow {
+    SIX_HOURS("6h", Duration.ofHours(6)),
+    DAY("24h", Duration.ofHours(24)),
+    WEEK("7d", Duration.ofDays(7));
+
+    private final String label;
+    private final Duration length;
+
+    RisingWindow(String label, Duration length) {
+        this.label = label;
+        this.length = length;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Duration getLength() {
+        return length;
+    }
+
+    /**
+     * The longest window, which bounds how much history has to be kept.
+     */
+    public static Duration maxLength() {
+        Duration max = Duration.ZERO;
+        for (RisingWindow window : values()) {
+            if (window.length.compareTo(max) > 0) {
+                max = window.length;
+            }
+        }
+        return max;
+    }
+
+    public static RisingWindow fromLabel(String label) {
+        for (RisingWindow window : values()) {
+            if (window.label.equalsIgnoreCase(label)) {
+                return window;
+            }
+        }
+        throw new IllegalArgumentException("Unknown window: " + label);
+    }
+}
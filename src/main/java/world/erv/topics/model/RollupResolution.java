@@ -0,0 +1,64 @@
+package world.erv.topics.model;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Bucket sizes of the {@code wikipedia_view_rollup_*} tables, finest first. Buckets are aligned in UTC, and weeks
+ * start on Monday as with Postgres' {@code date_trunc('week', ...)}.
+ */
+public enum RollupResolution {
+    HOUR("hour", Duration.ofHours(1)),
+    DAY("day", Duration.ofDays(1)),
+    WEEK("week", Duration.ofDays(7));
+
+    private final String unit;
+    private final Duration bucketSize;
+
+    RollupResolution(String unit, Duration bucketSize) {
+        this.unit = unit;
+        this.bucketSize = bucketSize;
+    }
+
+    /**
+     * The {@code date_trunc} unit, which is also the suffix of the rollup table.
+     */
+    public String getUnit() {
+        return unit;
+    }
+
+    public String getTableName() {
+        return "wikipedia_view_rollup_" + unit;
+    }
+
+    public Duration getBucketSize() {
+        return bucketSize;
+    }
+
+    /**
+     * Returns the start of the bucket containing the instant.
+     */
+    public Instant bucketStart(Instant instant) {
+        return switch (this) {
+            case HOUR -> instant.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> instant.truncatedTo(ChronoUnit.DAYS);
+            case WEEK -> LocalDate.ofInstant(instant, ZoneOffset.UTC)
+                    .with(DayOfWeek.MONDAY)
+                    .atStartOfDay(ZoneOffset.UTC)
+                    .toInstant();
+        };
+    }
+
+    public static RollupResolution fromUnit(String unit) {
+        for (RollupResolution resolution : values()) {
+            if (resolution.unit.equalsIgnoreCase(unit)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unknown resolution: " + unit);
+    }
+}
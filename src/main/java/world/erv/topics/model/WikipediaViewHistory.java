@@ -1,5 +1,6 @@
 package world.erv.topics.model;
 
+import io.r2dbc.postgresql.codec.Json;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
@@ -22,6 +23,8 @@ public class WikipediaViewHistory {
     @Column("view_trend")
     private Double viewTrend;
     private Long views;
+    @Column("trend_scores")
+    private Json trendScores;
 
     public WikipediaViewHistory() {
     }
@@ -83,4 +86,12 @@ public class WikipediaViewHistory {
     public void setViews(Long views) {
         this.views = views;
     }
+
+    public Json getTrendScores() {
+        return trendScores;
+    }
+
+    public void setTrendScores(Json trendScores) {
+        this.trendScores = trendScores;
+    }
 }
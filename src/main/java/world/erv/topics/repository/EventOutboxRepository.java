@@ -0,0 +1,173 @@
+package world.erv.topics.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reads and writes the {@code event_outbox} table and its per-consumer {@code event_deliveries}.
+ */
+@Repository
+public class EventOutboxRepository {
+
+    private static final String INSERT_SQL = "WITH o AS (" +
+            "INSERT INTO event_outbox (event_type, payload, created_at) " +
+            "VALUES (:eventType, CAST(:payload AS JSONB), :createdAt) " +
+            "RETURNING id" +
+            "), d AS (" +
+            "INSERT INTO event_deliveries (outbox_id, consumer, available_at, claimed_by) " +
+            "SELECT o.id, c.consumer, :availableAt, :holder " +
+            "FROM o, unnest(CAST(:consumers AS TEXT[])) AS c(consumer)" +
+            ") " +
+            "SELECT id FROM o";
+
+    private static final String DELETE_DELIVERY_SQL = "DELETE FROM event_deliveries " +
+            "WHERE outbox_id = :id AND consumer = :consumer";
+
+    private static final String DELETE_DELIVERED_SQL = "DELETE FROM event_outbox o " +
+            "WHERE o.id = :id AND NOT EXISTS (SELECT 1 FROM event_deliveries d WHERE d.outbox_id = o.id)";
+
+    // Doubles the wait with every failed attempt, up to the maximum
+    private static final String RETRY_LATER_SQL = "UPDATE event_deliveries " +
+            "SET attempts = attempts + 1, claimed_by = NULL, " +
+            "available_at = now() + make_interval(secs => LEAST(:maxBackoffSeconds, " +
+            ":minBackoffSeconds * power(2, attempts))) " +
+            "WHERE outbox_id = :id AND consumer = :consumer " +
+            "RETURNING attempts";
+
+    private static final String RELEASE_SQL = "UPDATE event_deliveries SET available_at = now(), claimed_by = NULL " +
+            "WHERE outbox_id = :id AND consumer = :consumer";
+
+    // Rows another instance is claiming right now are skipped rather than waited for
+    private static final String CLAIM_DUE_SQL = "UPDATE event_deliveries d " +
+            "SET available_at = now() + make_interval(secs => :leaseSeconds), claimed_by = :holder " +
+            "FROM event_outbox o " +
+            "WHERE o.id = d.outbox_id AND d.consumer = :consumer AND d.outbox_id IN (" +
+            "SELECT outbox_id FROM event_deliveries " +
+            "WHERE consumer = :consumer AND available_at <= now() " +
+            "ORDER BY outbox_id " +
+            "LIMIT :limit " +
+            "FOR UPDATE SKIP LOCKED" +
+            ") " +
+            "RETURNING d.outbox_id, d.attempts, o.event_type, CAST(o.payload AS TEXT) AS payload";
+
+    // Only leases that haven't run out yet; an expired one may already belong to another instance
+    private static final String RENEW_CLAIMS_SQL = "UPDATE event_deliveries d " +
+            "SET available_at = now() + make_interval(secs => :leaseSeconds) " +
+            "FROM unnest(CAST(:ids AS BIGINT[]), CAST(:consumers AS TEXT[])) AS c(outbox_id, consumer) " +
+            "WHERE d.outbox_id = c.outbox_id AND d.consumer = c.consumer " +
+            "AND d.claimed_by = :holder AND d.available_at > now()";
+
+    public record Entry(long id, String eventType, String payload, int attempts) {
+    }
+
+    private final DatabaseClient databaseClient;
+
+    public EventOutboxRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Stores an event with a delivery for each of the given consumers, claimed by {@code holder} until
+     * {@code availableAt}. Runs inside the caller's transaction when there is one.
+     *
+     * @return the outbox id of the event
+     */
+    public Mono<Long> insert(
+            String eventType,
+            String payload,
+            List<String> consumers,
+            Instant createdAt,
+            Instant availableAt,
+            String holder
+    ) {
+        return databaseClient.sql(INSERT_SQL)
+                .bind("eventType", eventType)
+                .bind("payload", payload)
+                .bind("consumers", consumers.toArray(String[]::new))
+                .bind("createdAt", createdAt)
+                .bind("availableAt", availableAt)
+                .bind("holder", holder)
+                .map((row, metadata) -> row.get("id", Long.class))
+                .one();
+    }
+
+    /**
+     * Records that a consumer has handled the event, deleting the event once every consumer has.
+     */
+    public Mono<Void> markDelivered(long id, String consumer) {
+        return databaseClient.sql(DELETE_DELIVERY_SQL)
+                .bind("id", id)
+                .bind("consumer", consumer)
+                .then()
+                .then(databaseClient.sql(DELETE_DELIVERED_SQL)
+                        .bind("id", id)
+                        .then());
+    }
+
+    /**
+     * Counts a failed attempt and makes the delivery available again after a backoff that doubles with every
+     * attempt, starting at {@code minBackoff} and capped at {@code maxBackoff}.
+     *
+     * @return the number of failed attempts so far
+     */
+    public Mono<Integer> retryLater(long id, String consumer, Duration minBackoff, Duration maxBackoff) {
+        return databaseClient.sql(RETRY_LATER_SQL)
+                .bind("id", id)
+                .bind("consumer", consumer)
+                .bind("minBackoffSeconds", minBackoff.toMillis() / 1000.0)
+                .bind("maxBackoffSeconds", maxBackoff.toMillis() / 1000.0)
+                .map((row, metadata) -> row.get("attempts", Integer.class))
+                .one();
+    }
+
+    /**
+     * Makes the delivery available again right away, without counting an attempt.
+     */
+    public Mono<Void> release(long id, String consumer) {
+        return databaseClient.sql(RELEASE_SQL)
+                .bind("id", id)
+                .bind("consumer", consumer)
+                .then();
+    }
+
+    /**
+     * Claims up to {@code limit} of the consumer's deliveries that are due, oldest first, for {@code holder}, making
+     * them unavailable to every other instance for {@code lease}.
+     */
+    public Flux<Entry> claimDue(String consumer, int limit, Duration lease, String holder) {
+        return databaseClient.sql(CLAIM_DUE_SQL)
+                .bind("consumer", consumer)
+                .bind("holder", holder)
+                .bind("limit", limit)
+                .bind("leaseSeconds", lease.toMillis() / 1000.0)
+                .map((row, metadata) -> new Entry(
+                        row.get("outbox_id", Long.class),
+                        row.get("event_type", String.class),
+                        row.get("payload", String.class),
+                        row.get("attempts", Integer.class)
+                ))
+                .all();
+    }
+
+    /**
+     * Extends the lease of the given deliveries, each identified by the event's outbox id and the consumer at the
+     * same position, as long as {@code holder} still has them claimed.
+     *
+     * @return the number of deliveries renewed
+     */
+    public Mono<Long> renewClaims(List<Long> ids, List<String> consumers, String holder, Duration lease) {
+        return databaseClient.sql(RENEW_CLAIMS_SQL)
+                .bind("ids", ids.toArray(Long[]::new))
+                .bind("consumers", consumers.toArray(String[]::new))
+                .bind("holder", holder)
+                .bind("leaseSeconds", lease.toMillis() / 1000.0)
+                .fetch()
+                .rowsUpdated();
+    }
+}
@@ -0,0 +1,74 @@
+package world.erv.topics.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Reads and writes the {@code feed_fetch_state} table.
+ */
+@Repository
+public class FeedFetchStateRepository {
+
+    private static final String FIND_SQL = "SELECT feed_name, url, etag, last_modified, content_hash, fetched_at " +
+            "FROM feed_fetch_state WHERE feed_name = :feedName";
+
+    private static final String SAVE_SQL = "INSERT INTO feed_fetch_state " +
+            "(feed_name, url, etag, last_modified, content_hash, fetched_at) " +
+            "VALUES (:feedName, :url, :etag, :lastModified, :contentHash, :fetchedAt) " +
+            "ON CONFLICT (feed_name) DO UPDATE SET " +
+            "url = EXCLUDED.url, " +
+            "etag = EXCLUDED.etag, " +
+            "last_modified = EXCLUDED.last_modified, " +
+            "content_hash = EXCLUDED.content_hash, " +
+            "fetched_at = EXCLUDED.fetched_at";
+
+    public record Entry(
+            String feedName,
+            String url,
+            String etag,
+            String lastModified,
+            String contentHash,
+            Instant fetchedAt
+    ) {
+    }
+
+    private final DatabaseClient databaseClient;
+
+    public FeedFetchStateRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Entry> find(String feedName) {
+        return databaseClient.sql(FIND_SQL)
+                .bind("feedName", feedName)
+                .map((row, metadata) -> new Entry(
+                        row.get("feed_name", String.class),
+                        row.get("url", String.class),
+                        row.get("etag", String.class),
+                        row.get("last_modified", String.class),
+                        row.get("content_hash", String.class),
+                        row.get("fetched_at", Instant.class)
+                ))
+                .one();
+    }
+
+    /**
+     * Replaces the feed's state. Runs inside the caller's transaction when there is one.
+     */
+    public Mono<Void> save(Entry entry) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(SAVE_SQL)
+                .bind("feedName", entry.feedName())
+                .bind("url", entry.url())
+                .bind("contentHash", entry.contentHash())
+                .bind("fetchedAt", entry.fetchedAt());
+        spec = entry.etag() == null ? spec.bindNull("etag", String.class) : spec.bind("etag", entry.etag());
+        spec = entry.lastModified() == null
+                ? spec.bindNull("lastModified", String.class)
+                : spec.bind("lastModified", entry.lastModified());
+
+        return spec.then();
+    }
+}
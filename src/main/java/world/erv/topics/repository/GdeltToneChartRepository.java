@@ -1,9 +1,26 @@
 package world.erv.topics.repository;
 
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import world.erv.topics.model.GdeltToneChart;
 
+import java.util.Collection;
+
 @Repository
 public interface GdeltToneChartRepository extends ReactiveCrudRepository<GdeltToneChart, Long> {
+
+    public Mono<GdeltToneChart> findTopByTopicIdOrderByCreatedAtDesc(Long topicId);
+
+    /**
+     * Returns the latest tone chart of each of the given topics that has one.
+     */
+    @Query("SELECT DISTINCT ON (topic_id) * " +
+            "FROM gdelt_tone_charts " +
+            "WHERE topic_id IN (:topicIds) " +
+            "ORDER BY topic_id, created_at DESC")
+    public Flux<GdeltToneChart> findLatestByTopicIdIn(@Param("topicIds") Collection<Long> topicIds);
 }
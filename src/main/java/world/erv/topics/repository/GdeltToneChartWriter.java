@@ -0,0 +1,54 @@
+package world.erv.topics.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import world.erv.topics.model.GdeltToneChart;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Bulk writer for {@link GdeltToneChart} rows, sending each batch as a single multi-row INSERT.
+ */
+@Repository
+public class GdeltToneChartWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO gdelt_tone_charts " +
+            "(topic_id, tone_chart, created_at, modified_at) " +
+            "SELECT t.topic_id, CAST(t.tone_chart AS JSONB), :createdAt, :createdAt " +
+            "FROM unnest(CAST(:topicIds AS BIGINT[]), CAST(:toneCharts AS TEXT[])) AS t(topic_id, tone_chart)";
+
+    private final DatabaseClient databaseClient;
+
+    public GdeltToneChartWriter(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Inserts all tone charts stamped with the given creation time.
+     *
+     * @return the number of rows written
+     */
+    public Mono<Long> insertAll(List<GdeltToneChart> toneCharts, Instant createdAt) {
+        if (toneCharts.isEmpty()) {
+            return Mono.just(0L);
+        }
+
+        int n = toneCharts.size();
+        Long[] topicIds = new Long[n];
+        String[] charts = new String[n];
+        for (int i = 0; i < n; i++) {
+            GdeltToneChart toneChart = toneCharts.get(i);
+            topicIds[i] = toneChart.getTopicId();
+            charts[i] = toneChart.getToneChart() == null ? null : toneChart.getToneChart().asString();
+        }
+
+        return databaseClient.sql(INSERT_SQL)
+                .bind("createdAt", createdAt)
+                .bind("topicIds", topicIds)
+                .bind("toneCharts", charts)
+                .fetch()
+                .rowsUpdated();
+    }
+}
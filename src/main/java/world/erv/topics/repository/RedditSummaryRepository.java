@@ -1,9 +1,35 @@
 package world.erv.topics.repository;
 
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import world.erv.topics.model.RedditSummary;
 
+import java.time.Instant;
+import java.util.Collection;
+
 @Repository
 public interface RedditSummaryRepository extends ReactiveCrudRepository<RedditSummary, Long> {
+
+    /**
+     * Returns which of the given topics already have a summary created at or after {@code since}.
+     */
+    @Query("SELECT DISTINCT topic_id " +
+            "FROM reddit_summaries " +
+            "WHERE created_at >= :since AND topic_id IN (:topicIds)")
+    public Flux<Long> findTopicIdsSummarizedSince(
+            @Param("since") Instant since,
+            @Param("topicIds") Collection<Long> topicIds
+    );
+
+    /**
+     * Returns the latest summary of each of the given topics that has one.
+     */
+    @Query("SELECT DISTINCT ON (topic_id) * " +
+            "FROM reddit_summaries " +
+            "WHERE topic_id IN (:topicIds) " +
+            "ORDER BY topic_id, created_at DESC")
+    public Flux<RedditSummary> findLatestByTopicIdIn(@Param("topicIds") Collection<Long> topicIds);
 }
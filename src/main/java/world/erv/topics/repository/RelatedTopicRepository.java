@@ -0,0 +1,103 @@
+package world.erv.topics.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import world.erv.topics.dto.RelatedTopicDto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reads and replaces the {@code related_topics} table.
+ */
+@Repository
+public class RelatedTopicRepository {
+
+    private static final int BATCH_SIZE = 5000;
+
+    private static final String DELETE_ALL_SQL = "DELETE FROM related_topics";
+
+    private static final String INSERT_SQL = "INSERT INTO related_topics " +
+            "(topic_id, related_topic_id, correlation, overlap_days, computed_at) " +
+            "SELECT t.topic_id, t.related_topic_id, t.correlation, t.overlap_days, :computedAt " +
+            "FROM unnest(CAST(:topicIds AS BIGINT[]), CAST(:relatedTopicIds AS BIGINT[]), " +
+            "CAST(:correlations AS DOUBLE PRECISION[]), CAST(:overlapDays AS INTEGER[])) " +
+            "AS t(topic_id, related_topic_id, correlation, overlap_days) " +
+            // A topic deleted since its series was read would otherwise fail the whole run
+            "WHERE EXISTS (SELECT 1 FROM topics WHERE id = t.topic_id) " +
+            "AND EXISTS (SELECT 1 FROM topics WHERE id = t.related_topic_id)";
+
+    private static final String FIND_SQL = "SELECT t.id, t.title, t.wikipedia_url, r.correlation, r.overlap_days " +
+            "FROM related_topics r " +
+            "JOIN topics t ON t.id = r.related_topic_id " +
+            "WHERE r.topic_id = :topicId " +
+            "ORDER BY r.correlation DESC, t.id " +
+            "LIMIT :limit";
+
+    public record Entry(long topicId, long relatedTopicId, double correlation, int overlapDays) {
+    }
+
+    private final DatabaseClient databaseClient;
+
+    public RelatedTopicRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Replaces every stored relation with {@code entries}. Runs inside the caller's transaction when there is one,
+     * which readers need so they never see a half-written table.
+     *
+     * @return the number of rows written
+     */
+    public Mono<Long> replaceAll(List<Entry> entries, Instant computedAt) {
+        return databaseClient.sql(DELETE_ALL_SQL)
+                .then()
+                .thenMany(Flux.fromIterable(entries))
+                .buffer(BATCH_SIZE)
+                .concatMap(batch -> insert(batch, computedAt))
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<Long> insert(List<Entry> batch, Instant computedAt) {
+        int n = batch.size();
+        Long[] topicIds = new Long[n];
+        Long[] relatedTopicIds = new Long[n];
+        Double[] correlations = new Double[n];
+        Integer[] overlapDays = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            Entry entry = batch.get(i);
+            topicIds[i] = entry.topicId();
+            relatedTopicIds[i] = entry.relatedTopicId();
+            correlations[i] = entry.correlation();
+            overlapDays[i] = entry.overlapDays();
+        }
+
+        return databaseClient.sql(INSERT_SQL)
+                .bind("computedAt", computedAt)
+                .bind("topicIds", topicIds)
+                .bind("relatedTopicIds", relatedTopicIds)
+                .bind("correlations", correlations)
+                .bind("overlapDays", overlapDays)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Returns the topics most strongly correlated with {@code topicId}, strongest first.
+     */
+    public Flux<RelatedTopicDto> findRelated(long topicId, int limit) {
+        return databaseClient.sql(FIND_SQL)
+                .bind("topicId", topicId)
+                .bind("limit", limit)
+                .map((row, metadata) -> new RelatedTopicDto(
+                        row.get("id", Long.class),
+                        row.get("title", String.class),
+                        row.get("wikipedia_url", String.class),
+                        row.get("correlation", Double.class),
+                        row.get("overlap_days", Integer.class)
+                ))
+                .all();
+    }
+}
@@ -1,12 +1,39 @@
 package world.erv.topics.repository;
 
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import world.erv.topics.model.Topic;
 
+import java.util.Collection;
+
 @Repository
 public interface TopicRepository extends ReactiveCrudRepository<Topic, Long> {
 
     public Mono<Topic> findByTitle(String title);
+
+    public Flux<Topic> findByTitleIn(Collection<String> titles);
+
+    public Flux<Topic> findByIdGreaterThanOrderById(Long id);
+
+    /**
+     * Inserts every (title, url) pair that doesn't exist yet and returns the row for each distinct title, whether
+     * it was created or already present. Rows are inserted in title order so that concurrent ingestions lock the
+     * unique index in the same order instead of deadlocking each other.
+     */
+    @Query("INSERT INTO topics (title, wikipedia_url, created_at, modified_at) " +
+            "SELECT DISTINCT ON (t.title) t.title, t.url, now(), now() " +
+            "FROM unnest(CAST(:titles AS TEXT[]), CAST(:urls AS TEXT[])) AS t(title, url) " +
+            "ORDER BY t.title " +
+            "ON CONFLICT (title) DO UPDATE " +
+            "SET wikipedia_url = COALESCE(topics.wikipedia_url, EXCLUDED.wikipedia_url), " +
+            "modified_at = EXCLUDED.modified_at " +
+            "RETURNING id, title, wikipedia_url, created_at, modified_at")
+    public Flux<Topic> upsertAllByTitle(
+            @Param("titles") String[] titles,
+            @Param("urls") String[] urls
+    );
 }
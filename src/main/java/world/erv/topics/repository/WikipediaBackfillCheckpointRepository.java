@@ -0,0 +1,72 @@
+package world.erv.topics.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Reads and writes the per-date checkpoints of the featured-feed backfill.
+ */
+@Repository
+public class WikipediaBackfillCheckpointRepository {
+
+    private static final String FIND_COMPLETED_SQL = "SELECT feed_date FROM wikipedia_backfill_checkpoints " +
+            "WHERE feed_date BETWEEN :from AND :to";
+
+    // Days with any history row; backfilled days have a checkpoint, so the rest were written by the live ingestion
+    private static final String FIND_INGESTED_SQL = "SELECT CAST(d.day AS DATE) AS feed_date " +
+            "FROM generate_series(CAST(:from AS DATE), CAST(:to AS DATE), INTERVAL '1 day') AS d(day) " +
+            "WHERE EXISTS (" +
+            "SELECT 1 FROM wikipedia_view_history h " +
+            "WHERE h.created_at >= d.day AT TIME ZONE 'UTC' " +
+            "AND h.created_at < (d.day + INTERVAL '1 day') AT TIME ZONE 'UTC'" +
+            ")";
+
+    private static final String MARK_COMPLETED_SQL = "INSERT INTO wikipedia_backfill_checkpoints " +
+            "(feed_date, articles, completed_at) VALUES (:feedDate, :articles, :completedAt) " +
+            "ON CONFLICT (feed_date) DO UPDATE " +
+            "SET articles = EXCLUDED.articles, completed_at = EXCLUDED.completed_at";
+
+    private final DatabaseClient databaseClient;
+
+    public WikipediaBackfillCheckpointRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Returns the dates in {@code [from, to]} that already have a checkpoint.
+     */
+    public Flux<LocalDate> findCompletedDates(LocalDate from, LocalDate to) {
+        return databaseClient.sql(FIND_COMPLETED_SQL)
+                .bind("from", from)
+                .bind("to", to)
+                .map((row, metadata) -> row.get("feed_date", LocalDate.class))
+                .all();
+    }
+
+    /**
+     * Returns the dates in {@code [from, to]} (UTC) that already have view history of any origin.
+     */
+    public Flux<LocalDate> findIngestedDates(LocalDate from, LocalDate to) {
+        return databaseClient.sql(FIND_INGESTED_SQL)
+                .bind("from", from)
+                .bind("to", to)
+                .map((row, metadata) -> row.get("feed_date", LocalDate.class))
+                .all();
+    }
+
+    /**
+     * Records a date as done. Runs inside the caller's transaction when there is one.
+     */
+    public Mono<Void> markCompleted(LocalDate feedDate, int articles, Instant completedAt) {
+        return databaseClient.sql(MARK_COMPLETED_SQL)
+                .bind("feedDate", feedDate)
+                .bind("articles", articles)
+                .bind("completedAt", completedAt)
+                .then();
+    }
+}
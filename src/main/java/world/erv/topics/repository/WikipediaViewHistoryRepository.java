@@ -6,21 +6,43 @@ import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import world.erv.topics.dto.TopicDto;
 import world.erv.topics.model.WikipediaViewHistory;
 
 import java.time.Instant;
+import java.util.Collection;
 
 @Repository
 public interface WikipediaViewHistoryRepository extends ReactiveCrudRepository<WikipediaViewHistory, Long> {
 
-    @Query("SELECT * " +
+    /**
+     * Returns the most viewed topics in the range, one row per topic taken from its highest-view snapshot (the
+     * latest one on ties), joined with the topic itself.
+     */
+    @Query("SELECT t.id, t.title, t.wikipedia_url, h.views, h.view_trend " +
+            "FROM (" +
+            "SELECT DISTINCT ON (topic_id) topic_id, views, view_trend " +
             "FROM wikipedia_view_history " +
             "WHERE created_at >= :start AND created_at < :end " +
-            "ORDER BY views DESC")
-    public Flux<world.erv.topics.model.WikipediaViewHistory> findMostViewedArticlesFromDate(
+            "ORDER BY topic_id, views DESC, created_at DESC" +
+            ") h " +
+            "JOIN topics t ON t.id = h.topic_id " +
+            "ORDER BY h.views DESC, t.id " +
+            "LIMIT :limit")
+    public Flux<TopicDto> findMostViewedTopicsFromDate(
             @Param("start") Instant start,
-            @Param("end") Instant end
+            @Param("end") Instant end,
+            @Param("limit") int limit
     );
 
     public Mono<world.erv.topics.model.WikipediaViewHistory> findTopByOrderByModifiedAtDesc();
+
+    /**
+     * Returns the latest snapshot of each of the given topics that has one.
+     */
+    @Query("SELECT DISTINCT ON (topic_id) * " +
+            "FROM wikipedia_view_history " +
+            "WHERE topic_id IN (:topicIds) " +
+            "ORDER BY topic_id, created_at DESC")
+    public Flux<WikipediaViewHistory> findLatestByTopicIdIn(@Param("topicIds") Collection<Long> topicIds);
 }
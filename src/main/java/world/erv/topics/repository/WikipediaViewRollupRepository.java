@@ -0,0 +1,135 @@
+package world.erv.topics.repository;
+
+import io.r2dbc.spi.Row;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import world.erv.topics.dto.TopicHistoryPointDto;
+import world.erv.topics.model.RollupResolution;
+import world.erv.topics.model.WikipediaViewHistory;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains and reads the {@code wikipedia_view_rollup_*} tables.
+ */
+@Repository
+public class WikipediaViewRollupRepository {
+
+    // Folds a batch of observations, all taken at :createdAt, into their bucket. Rows for the same topic within the
+    // batch are pre-aggregated because ON CONFLICT can't update a row twice in one statement.
+    private static final String ACCUMULATE_SQL = "INSERT INTO %1$s AS r " +
+            "(topic_id, bucket_start, samples, min_views, max_views, last_views, sum_views, " +
+            "trend_samples, min_trend, max_trend, last_trend, sum_trend, last_at) " +
+            "SELECT t.topic_id, " +
+            "date_trunc('%2$s', CAST(:createdAt AS TIMESTAMPTZ) AT TIME ZONE 'UTC') AT TIME ZONE 'UTC', " +
+            "count(*), min(t.views), max(t.views), (array_agg(t.views ORDER BY t.ord DESC))[1], " +
+            "COALESCE(CAST(sum(t.views) AS BIGINT), 0), " +
+            "count(t.view_trend), min(t.view_trend), max(t.view_trend), " +
+            "(array_agg(t.view_trend ORDER BY t.ord DESC))[1], COALESCE(sum(t.view_trend), 0), :createdAt " +
+            "FROM unnest(CAST(:topicIds AS BIGINT[]), CAST(:views AS BIGINT[]), " +
+            "CAST(:viewTrends AS DOUBLE PRECISION[])) WITH ORDINALITY AS t(topic_id, views, view_trend, ord) " +
+            "GROUP BY t.topic_id " +
+            "ON CONFLICT (topic_id, bucket_start) DO UPDATE SET " +
+            "samples = r.samples + EXCLUDED.samples, " +
+            "min_views = LEAST(r.min_views, EXCLUDED.min_views), " +
+            "max_views = GREATEST(r.max_views, EXCLUDED.max_views), " +
+            "last_views = CASE WHEN EXCLUDED.last_at >= r.last_at THEN EXCLUDED.last_views ELSE r.last_views END, " +
+            "sum_views = r.sum_views + EXCLUDED.sum_views, " +
+            "trend_samples = r.trend_samples + EXCLUDED.trend_samples, " +
+            "min_trend = LEAST(r.min_trend, EXCLUDED.min_trend), " +
+            "max_trend = GREATEST(r.max_trend, EXCLUDED.max_trend), " +
+            "last_trend = CASE WHEN EXCLUDED.last_at >= r.last_at THEN EXCLUDED.last_trend ELSE r.last_trend END, " +
+            "sum_trend = r.sum_trend + EXCLUDED.sum_trend, " +
+            "last_at = GREATEST(r.last_at, EXCLUDED.last_at)";
+
+    private static final String FIND_SQL = "SELECT bucket_start, samples, min_views, max_views, last_views, " +
+            "sum_views, trend_samples, min_trend, max_trend, last_trend, sum_trend " +
+            "FROM %s " +
+            "WHERE topic_id = :topicId AND bucket_start >= :from AND bucket_start < :to " +
+            "ORDER BY bucket_start";
+
+    private final DatabaseClient databaseClient;
+    private final Map<RollupResolution, String> accumulateSql = new EnumMap<>(RollupResolution.class);
+    private final Map<RollupResolution, String> findSql = new EnumMap<>(RollupResolution.class);
+
+    public WikipediaViewRollupRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+        for (RollupResolution resolution : RollupResolution.values()) {
+            accumulateSql.put(resolution,
+                    String.format(ACCUMULATE_SQL, resolution.getTableName(), resolution.getUnit()));
+            findSql.put(resolution, String.format(FIND_SQL, resolution.getTableName()));
+        }
+    }
+
+    /**
+     * Folds observations taken at {@code createdAt} into every rollup table. Runs inside the caller's transaction
+     * when there is one.
+     */
+    public Mono<Void> accumulate(List<WikipediaViewHistory> histories, Instant createdAt) {
+        if (histories.isEmpty()) {
+            return Mono.empty();
+        }
+
+        int n = histories.size();
+        Long[] topicIds = new Long[n];
+        Long[] views = new Long[n];
+        Double[] viewTrends = new Double[n];
+        for (int i = 0; i < n; i++) {
+            WikipediaViewHistory history = histories.get(i);
+            topicIds[i] = history.getTopicId();
+            views[i] = history.getViews();
+            viewTrends[i] = history.getViewTrend();
+        }
+
+        return Flux.fromArray(RollupResolution.values())
+                .concatMap(resolution -> databaseClient.sql(accumulateSql.get(resolution))
+                        .bind("createdAt", createdAt)
+                        .bind("topicIds", topicIds)
+                        .bind("views", views)
+                        .bind("viewTrends", viewTrends)
+                        .fetch()
+                        .rowsUpdated())
+                .then();
+    }
+
+    /**
+     * Returns a topic's buckets that start in {@code [from, to)}, oldest first.
+     */
+    public Flux<TopicHistoryPointDto> findHistory(
+            long topicId,
+            RollupResolution resolution,
+            Instant from,
+            Instant to
+    ) {
+        return databaseClient.sql(findSql.get(resolution))
+                .bind("topicId", topicId)
+                .bind("from", from)
+                .bind("to", to)
+                .map((row, metadata) -> toPoint(row))
+                .all();
+    }
+
+    private static TopicHistoryPointDto toPoint(Row row) {
+        int samples = row.get("samples", Integer.class);
+        int trendSamples = row.get("trend_samples", Integer.class);
+        long sumViews = row.get("sum_views", Long.class);
+        double sumTrend = row.get("sum_trend", Double.class);
+
+        return new TopicHistoryPointDto(
+                row.get("bucket_start", Instant.class),
+                row.get("min_views", Long.class),
+                row.get("max_views", Long.class),
+                row.get("last_views", Long.class),
+                samples == 0 ? null : (double) sumViews / samples,
+                row.get("min_trend", Double.class),
+                row.get("max_trend", Double.class),
+                row.get("last_trend", Double.class),
+                trendSamples == 0 ? null : sumTrend / trendSamples
+        );
+    }
+}
@@ -0,0 +1,353 @@
+package world.erv.topics.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Immutable prefix index over topic titles. Titles are normalized (accents stripped, lower-cased, punctuation and
+ * underscores turned into single spaces) and packed into one {@code char[]}; every position where a word starts is
+ * sorted by the text that follows it within its title, so a query prefix of any word is a binary search and a range
+ * scan. When nothing matches as a prefix, titles with a word within a small edit distance of the query are used
+ * instead.
+ */
+public final class TopicSearchIndex {
+
+    // Bounds the words the fuzzy fallback compares against the query
+    private static final int MAX_FUZZY_SCANNED = 16384;
+
+    /**
+     * A matching topic. Lower ranks sort first; fuzzy matches are only returned when nothing matched as a prefix.
+     */
+    public record Match(long id, String title, int rank, boolean fuzzy) {
+    }
+
+    private record Candidate(int title, int rank, boolean fuzzy) {
+    }
+
+    /**
+     * Orders matches from any number of indexes the way a single index would.
+     */
+    public static final Comparator<Match> MATCH_ORDER = Comparator.comparing(Match::fuzzy)
+            .thenComparingInt(Match::rank)
+            .thenComparingInt(match -> match.title().length())
+            .thenComparing(Match::title);
+
+    private final long[] ids;
+    private final String[] titles;
+    private final char[] text;
+    // titleStarts[i]..titleStarts[i + 1] is title i's slice of text
+    private final int[] titleStarts;
+    // Positions in text where a word starts, in order of the text that follows them, and the title of each
+    private final int[] wordStarts;
+    private final int[] wordTitles;
+    private final long memoryBytes;
+    // Candidates ordered as rank() returns them
+    private final Comparator<Candidate> candidateOrder;
+
+    private TopicSearchIndex(long[] ids, String[] titles, char[] text, int[] titleStarts, int[] wordStarts,
+                             int[] wordTitles) {
+        this.ids = ids;
+        this.titles = titles;
+        this.text = text;
+        this.titleStarts = titleStarts;
+        this.wordStarts = wordStarts;
+        this.wordTitles = wordTitles;
+        this.memoryBytes = computeMemoryBytes();
+        this.candidateOrder = Comparator.comparingInt(Candidate::rank)
+                .thenComparingInt((Candidate candidate) -> titles[candidate.title()].length())
+                .thenComparing(candidate -> titles[candidate.title()]);
+    }
+
+    public static TopicSearchIndex empty() {
+        return build(new long[0], new String[0]);
+    }
+
+    /**
+     * Builds an index over the given topics; {@code ids[i]} is the id of {@code titles[i]}.
+     */
+    public static TopicSearchIndex build(long[] ids, String[] titles) {
+        int n = ids.length;
+        StringBuilder packed = new StringBuilder();
+        int[] titleStarts = new int[n + 1];
+        List<int[]> words = new ArrayList<>();
+
+        for (int i = 0; i < n; i++) {
+            titleStarts[i] = packed.length();
+            String normalized = normalize(titles[i]);
+            for (int c = 0; c < normalized.length(); c++) {
+                if (normalized.charAt(c) != ' ' && (c == 0 || normalized.charAt(c - 1) == ' ')) {
+                    words.add(new int[]{packed.length() + c, i});
+                }
+            }
+            packed.append(normalized);
+        }
+        titleStarts[n] = packed.length();
+
+        char[] text = packed.toString().toCharArray();
+        words.sort(Comparator.comparing(
+                word -> word,
+                (a, b) -> compare(text, a[0], titleStarts[a[1] + 1], b[0], titleStarts[b[1] + 1])
+        ));
+
+        int[] wordStarts = new int[words.size()];
+        int[] wordTitles = new int[words.size()];
+        for (int w = 0; w < words.size(); w++) {
+            wordStarts[w] = words.get(w)[0];
+            wordTitles[w] = words.get(w)[1];
+        }
+        return new TopicSearchIndex(ids.clone(), titles.clone(), text, titleStarts, wordStarts, wordTitles);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long[] getIds() {
+        return ids.clone();
+    }
+
+    public String[] getTitles() {
+        return titles.clone();
+    }
+
+    /**
+     * Approximate heap footprint of the index in bytes.
+     */
+    public long estimateMemoryBytes() {
+        return memoryBytes;
+    }
+
+    private long computeMemoryBytes() {
+        long bytes = 16L * 6 + 8
+                + 8L * ids.length
+                + 2L * text.length
+                + 4L * (titleStarts.length + wordStarts.length + wordTitles.length);
+        for (String title : titles) {
+            bytes += stringBytes(title);
+        }
+        return bytes;
+    }
+
+    /**
+     * Approximate number of bytes adding the title to an index costs, for bounding an index before it is built.
+     */
+    public static long estimateTitleBytes(String title) {
+        long words = title.chars().filter(c -> !Character.isLetterOrDigit(c)).count() + 1;
+        return stringBytes(title) + 8 + 4 + 2L * title.length() + 8 * words;
+    }
+
+    private static long stringBytes(String title) {
+        // Object headers, fields and a Latin-1 or UTF-16 backing array
+        return 56 + (long) title.length() * (title.chars().allMatch(c -> c < 256) ? 1 : 2);
+    }
+
+    /**
+     * Returns up to {@code limit} topics with a word starting with the query, titles that start with it first and
+     * shorter titles before longer ones. Falls back to fuzzy matching when no title matches the query as a prefix.
+     */
+    public List<Match> search(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        // The words are in alphabetical order rather than rank order, so the whole range is scanned and only the
+        // best limit titles are kept: the worst of them at the head of the heap, and each title's entry by title
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, candidateOrder.reversed());
+        Map<Integer, Candidate> bestByTitle = new HashMap<>();
+        for (int w = lowerBound(q); w < wordStarts.length; w++) {
+            if (!startsWith(wordStarts[w], titleStarts[wordTitles[w] + 1], q)) {
+                break;
+            }
+            int title = wordTitles[w];
+            Candidate candidate = new Candidate(title, wordStarts[w] == titleStarts[title] ? 0 : 1, false);
+            Candidate kept = bestByTitle.get(title);
+            if (kept != null) {
+                // The same title through a later word, which only matters if that word starts the title
+                if (candidateOrder.compare(candidate, kept) < 0) {
+                    best.remove(kept);
+                    best.add(candidate);
+                    bestByTitle.put(title, candidate);
+                }
+            } else if (best.size() < limit) {
+                best.add(candidate);
+                bestByTitle.put(title, candidate);
+            } else if (candidateOrder.compare(candidate, best.peek()) < 0) {
+                bestByTitle.remove(best.poll().title());
+                best.add(candidate);
+                bestByTitle.put(title, candidate);
+            }
+        }
+
+        if (best.isEmpty() && q.length() >= 3) {
+            return rank(fuzzyCandidates(q), limit);
+        }
+        return rank(new ArrayList<>(best), limit);
+    }
+
+    /**
+     * Words whose leading characters are within one edit (two for longer queries) of the query. The first
+     * character must match, which keeps the scan to one contiguous range of the sorted words.
+     */
+    private List<Candidate> fuzzyCandidates(String q) {
+        int maxEdits = q.length() <= 5 ? 1 : 2;
+        List<Candidate> candidates = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+
+        int[] previous = new int[q.length() + 1];
+        int[] current = new int[q.length() + 1];
+        int scanned = 0;
+        for (int w = lowerBound(q.substring(0, 1)); w < wordStarts.length; w++) {
+            int start = wordStarts[w];
+            int end = titleStarts[wordTitles[w] + 1];
+            if (text[start] != q.charAt(0) || ++scanned > MAX_FUZZY_SCANNED) {
+                break;
+            }
+            int title = wordTitles[w];
+            if (seen.contains(title)) {
+                continue;
+            }
+
+            int distance = prefixEditDistance(q, start, end, maxEdits, previous, current);
+            if (distance <= maxEdits) {
+                seen.add(title);
+                candidates.add(new Candidate(title, distance, true));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Smallest edit distance between the query and any prefix of {@code text[start, end)}, or a value above
+     * {@code maxEdits} once it can no longer be within it. Only the diagonal band of width {@code 2 * maxEdits + 1}
+     * is computed, since every cell outside it exceeds {@code maxEdits}.
+     */
+    private int prefixEditDistance(String q, int start, int end, int maxEdits, int[] previous, int[] current) {
+        int m = q.length();
+        int outside = maxEdits + 1;
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= maxEdits ? j : outside;
+        }
+        int best = previous[m];
+        int length = Math.min(end - start, m + maxEdits);
+
+        for (int i = 1; i <= length; i++) {
+            char c = text[start + i - 1];
+            int from = Math.max(1, i - maxEdits);
+            int to = Math.min(m, i + maxEdits);
+            current[0] = i <= maxEdits ? i : outside;
+            if (from > 1) {
+                current[from - 1] = outside;
+            }
+            int rowMin = current[0];
+            for (int j = from; j <= to; j++) {
+                int substitution = previous[j - 1] + (q.charAt(j - 1) == c ? 0 : 1);
+                current[j] = Math.min(outside, Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1));
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < m) {
+                current[to + 1] = outside;
+            }
+            if (to == m) {
+                best = Math.min(best, current[m]);
+            }
+            if (rowMin > maxEdits) {
+                break;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return best;
+    }
+
+    private List<Match> rank(List<Candidate> candidates, int limit) {
+        return candidates.stream()
+                .sorted(candidateOrder)
+                .limit(limit)
+                .map(candidate -> new Match(
+                        ids[candidate.title()],
+                        titles[candidate.title()],
+                        candidate.rank(),
+                        candidate.fuzzy()
+                ))
+                .toList();
+    }
+
+    private int lowerBound(String q) {
+        int low = 0;
+        int high = wordStarts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareToQuery(wordStarts[mid], titleStarts[wordTitles[mid] + 1], q) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareToQuery(int start, int end, String q) {
+        int length = Math.min(end - start, q.length());
+        for (int i = 0; i < length; i++) {
+            int difference = text[start + i] - q.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return (end - start) - q.length();
+    }
+
+    private boolean startsWith(int start, int end, String q) {
+        if (end - start < q.length()) {
+            return false;
+        }
+        for (int i = 0; i < q.length(); i++) {
+            if (text[start + i] != q.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int compare(char[] text, int aStart, int aEnd, int bStart, int bEnd) {
+        int length = Math.min(aEnd - aStart, bEnd - bStart);
+        int mismatch = Arrays.mismatch(text, aStart, aStart + length, text, bStart, bStart + length);
+        if (mismatch >= 0) {
+            return text[aStart + mismatch] - text[bStart + mismatch];
+        }
+        return (aEnd - aStart) - (bEnd - bStart);
+    }
+
+    static String normalize(String title) {
+        String decomposed = Normalizer.normalize(title, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && !normalized.isEmpty()) {
+                    normalized.append(' ');
+                }
+                pendingSpace = false;
+                normalized.append(Character.toLowerCase(c));
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,53 +1,260 @@
 package world.erv.topics.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.r2dbc.postgresql.codec.Json;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.event.EventListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import world.erv.topics.event.EventConsumer;
 import world.erv.topics.event.WikipediaFeaturedFetchEvent;
 import world.erv.topics.model.GdeltToneChart;
 import world.erv.topics.repository.GdeltToneChartRepository;
+import world.erv.topics.repository.GdeltToneChartWriter;
 import world.erv.topics.repository.TopicRepository;
+import world.erv.topics.util.TokenBucketRateLimiter;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
-public class GdeltService {
+@ConditionalOnProperty(name = "features.gdelt-service.enabled", havingValue = "true")
+public class GdeltService implements EventConsumer<WikipediaFeaturedFetchEvent> {
 
     private static final Logger log = LoggerFactory.getLogger(GdeltService.class);
-    private final TransactionalOperator transactionalOperator;
     private final WebClient webClient;
     private final GdeltToneChartRepository gdeltToneChartRepository;
+    private final GdeltToneChartWriter gdeltToneChartWriter;
     private final TopicRepository topicRepository;
+    private final ObjectMapper objectMapper;
+    private final ToneChartCache toneChartCache;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final int concurrency;
+    private final int maxRetries;
+    private final Duration minBackoff;
+    private final int batchSize;
+    private final String timespan;
+    // Requests currently in flight, keyed by title and timespan, so concurrent callers share one upstream call
+    private final Map<String, Mono<Json>> inFlight = new ConcurrentHashMap<>();
 
     public GdeltService(
-            TransactionalOperator transactionalOperator,
             WebClient gdeltWebClient,
             GdeltToneChartRepository gdeltToneChartRepository,
-            TopicRepository topicRepository
+            GdeltToneChartWriter gdeltToneChartWriter,
+            TopicRepository topicRepository,
+            ObjectMapper objectMapper,
+            ToneChartCache toneChartCache,
+            @Value("${gdelt.rate-limit.permits-per-second:0.2}") double permitsPerSecond,
+            @Value("${gdelt.rate-limit.burst:1}") int burst,
+            @Value("${gdelt.concurrency:4}") int concurrency,
+            @Value("${gdelt.retry.max-retries:3}") int maxRetries,
+            @Value("${gdelt.retry.min-backoff:PT2S}") Duration minBackoff,
+            @Value("${gdelt.persist-batch-size:25}") int batchSize,
+            @Value("${gdelt.timespan:1d}") String timespan
     ) {
-        this.transactionalOperator = transactionalOperator;
         this.webClient = gdeltWebClient;
         this.gdeltToneChartRepository = gdeltToneChartRepository;
+        this.gdeltToneChartWriter = gdeltToneChartWriter;
         this.topicRepository = topicRepository;
+        this.objectMapper = objectMapper;
+        this.toneChartCache = toneChartCache;
+        this.rateLimiter = new TokenBucketRateLimiter(permitsPerSecond, burst);
+        this.concurrency = concurrency;
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.batchSize = batchSize;
+        this.timespan = timespan;
     }
 
-    @EventListener
-    public Mono<Void> handleWikipediaFeaturedFetchEvent(WikipediaFeaturedFetchEvent event) {
+    @Override
+    public String name() {
+        return "gdelt";
+    }
+
+    @Override
+    public Class<WikipediaFeaturedFetchEvent> eventType() {
+        return WikipediaFeaturedFetchEvent.class;
+    }
+
+    // Delivered off the ingestion path, so GDELT's rate limit never holds up an ingestion run
+    @Override
+    public Mono<Void> consume(WikipediaFeaturedFetchEvent event) {
         log.info("[EVENT: Consumed {}", event);
 
         return runGdeltService(event.getTopicTitles());
     }
 
+    /**
+     * Fetches and stores a tone chart for every known topic in the list. Requests fan out up to the configured
+     * concurrency, within the rate limit, and results are written in batches as they arrive. A title whose fetch
+     * ultimately fails is logged and skipped.
+     */
     public Mono<Void> runGdeltService(List<String> topicTitles) {
+        Instant createdAt = Instant.now();
+
+        return topicRepository.findByTitleIn(topicTitles.stream().distinct().toList())
+                .flatMap(topic -> fetchGdeltToneChart(topic.getTitle(), timespan)
+                                .doOnNext(toneChart -> toneChart.setTopicId(topic.getId()))
+                                .onErrorResume(error -> {
+                                    log.warn("Failed to fetch GDELT tone chart for '{}'", topic.getTitle(), error);
+                                    return Mono.empty();
+                                }),
+                        concurrency)
+                .buffer(batchSize)
+                .concatMap(batch -> gdeltToneChartWriter.insertAll(batch, createdAt)
+                        .doOnNext(rows -> batch.forEach(toneChart -> toneChartCache.put(
+                                toneChart.getTopicId(),
+                                toneChart.getToneChart().asArray(),
+                                createdAt
+                        ))))
+                .reduce(0L, Long::sum)
+                .doOnNext(rows -> log.info("Stored {} GDELT tone charts", rows))
+                .then();
+    }
+
+    /**
+     * Returns the latest tone chart for a topic as raw JSON, served from memory when possible. A stale cached chart
+     * is returned immediately while a refresh from GDELT runs in the background; on a cache miss the stored chart is
+     * loaded, and GDELT is only queried inline when nothing is stored yet.
+     */
+    public Mono<byte[]> getToneChart(long topicId) {
+        return Mono.defer(() -> {
+            ToneChartCache.Entry cached = toneChartCache.get(topicId);
+            if (cached != null) {
+                if (toneChartCache.isStale(cached)) {
+                    refreshInBackground(topicId);
+                }
+                return Mono.just(cached.json());
+            }
+
+            return gdeltToneChartRepository.findTopByTopicIdOrderByCreatedAtDesc(topicId)
+                    .filter(toneChart -> toneChart.getToneChart() != null)
+                    .map(toneChart -> toneChartCache.put(
+                            topicId,
+                            toneChart.getToneChart().asArray(),
+                            toneChart.getCreatedAt()
+                    ))
+                    .doOnNext(entry -> {
+                        if (toneChartCache.isStale(entry)) {
+                            refreshInBackground(topicId);
+                        }
+                    })
+                    .switchIfEmpty(Mono.defer(() -> refreshToneChart(topicId)))
+                    .map(ToneChartCache.Entry::json);
+        });
+    }
+
+    private void refreshInBackground(long topicId) {
+        if (!toneChartCache.tryStartRefresh(topicId)) {
+            return;
+        }
+
+        refreshToneChart(topicId)
+                .doFinally(signal -> toneChartCache.finishRefresh(topicId))
+                .subscribe(null, error -> log.warn("Failed to refresh tone chart for topic {}", topicId, error));
+    }
 
+    /**
+     * Fetches a topic's tone chart from GDELT, stores it and caches it.
+     */
+    private Mono<ToneChartCache.Entry> refreshToneChart(long topicId) {
+        return topicRepository.findById(topicId)
+                .flatMap(topic -> fetchGdeltToneChart(topic.getTitle(), timespan))
+                .flatMap(toneChart -> {
+                    Instant createdAt = Instant.now();
+                    toneChart.setTopicId(topicId);
+
+                    return gdeltToneChartWriter.insertAll(List.of(toneChart), createdAt)
+                            .thenReturn(toneChartCache.put(topicId, toneChart.getToneChart().asArray(), createdAt));
+                });
     }
 
+    /**
+     * Fetches the tone chart for a title. Completes empty when GDELT has nothing usable for it.
+     */
     public Mono<GdeltToneChart> fetchGdeltToneChart(String topicTitle, String timespan) {
-        String uri = String.format("?query=\"%s\"&mode=tonechart&format=json&timespan=%s", topicTitle, timespan);
+        String key = topicTitle + '\u0000' + timespan;
+
+        return inFlight
+                .computeIfAbsent(key, k -> requestToneChart(topicTitle, timespan)
+                        .doFinally(signal -> inFlight.remove(k))
+                        .cache())
+                .map(json -> {
+                    GdeltToneChart toneChart = new GdeltToneChart();
+                    toneChart.setToneChart(json);
+                    return toneChart;
+                });
+    }
+
+    private Mono<Json> requestToneChart(String topicTitle, String timespan) {
+        // Wikipedia titles use underscores for spaces; GDELT wants the phrase quoted
+        String query = "\"" + topicTitle.replace('_', ' ') + "\"";
+
+        Mono<String> request = webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .queryParam("query", "{query}")
+                        .queryParam("mode", "tonechart")
+                        .queryParam("format", "json")
+                        .queryParam("timespan", "{timespan}")
+                        .build(query, timespan))
+                .retrieve()
+                .bodyToMono(String.class);
+
+        // Every attempt, including retries, waits for its own permit
+        return rateLimiter.acquire()
+                .then(request)
+                .retryWhen(Retry.backoff(maxRetries, minBackoff)
+                        .jitter(0.5)
+                        .filter(GdeltService::isRetryable))
+                .flatMap(body -> toToneChart(topicTitle, body, timespan));
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().value() == 429
+                    || responseException.getStatusCode().is5xxServerError();
+        }
+        return error instanceof WebClientRequestException;
+    }
+
+    /**
+     * Converts GDELT's {@code tonechart} response into the histogram document served to the dashboard.
+     */
+    private Mono<Json> toToneChart(String topicTitle, String body, String timespan) {
+        JsonNode response;
+        try {
+            response = objectMapper.readTree(body);
+        } catch (JsonProcessingException e) {
+            // GDELT reports query problems as plain text with a 200
+            log.warn("GDELT returned a non-JSON response for '{}': {}", topicTitle, body.strip());
+            return Mono.empty();
+        }
+
+        ObjectNode toneChart = objectMapper.createObjectNode();
+        toneChart.put("query_date", LocalDate.now(ZoneId.of("UTC")).toString());
+        toneChart.put("timespan", timespan);
+        ArrayNode histogram = toneChart.putArray("histogram");
+        for (JsonNode bin : response.path("tonechart")) {
+            histogram.addObject()
+                    .put("bin", bin.path("bin").asInt())
+                    .put("count", bin.path("count").asLong());
+        }
+
+        return Mono.just(Json.of(toneChart.toString()));
     }
 }
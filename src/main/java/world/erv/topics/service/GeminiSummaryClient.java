@@ -0,0 +1,59 @@
+package world.erv.topics.service;
+
+import com.google.genai.Client;
+import com.google.genai.types.GenerateContentConfig;
+import com.google.genai.types.GenerateContentResponse;
+import com.google.genai.types.GoogleSearch;
+import com.google.genai.types.HttpOptions;
+import com.google.genai.types.Tool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+
+/**
+ * {@link SummaryClient} backed by Gemini with Google Search grounding.
+ */
+@Component
+@ConditionalOnProperty(name = "features.summary-service.enabled", havingValue = "true")
+public class GeminiSummaryClient implements SummaryClient {
+
+    private final Client client;
+    private final String model;
+    private final GenerateContentConfig contentConfig;
+
+    public GeminiSummaryClient(
+            @Value("${google.api.key}") String apiKey,
+            @Value("${summary.model:gemini-2.0-flash}") String model,
+            @Value("${summary.call-timeout:PT2M}") Duration callTimeout
+    ) {
+        this.client = Client.builder()
+                .apiKey(apiKey)
+                // Frees the calling thread, and its call permit, once SummaryService has given up on the call
+                .httpOptions(HttpOptions.builder()
+                        .timeout(Math.toIntExact(callTimeout.toMillis()))
+                        .build())
+                .build();
+        this.model = model;
+
+        Tool searchTool = Tool.builder()
+                .googleSearch(GoogleSearch.builder().build())
+                .build();
+        this.contentConfig = GenerateContentConfig.builder()
+                .tools(Collections.singletonList(searchTool))
+                .build();
+    }
+
+    @Override
+    public String generate(String prompt) {
+        GenerateContentResponse contentResponse = client.models.generateContent(
+                model,
+                prompt,
+                contentConfig
+        );
+
+        return contentResponse.text();
+    }
+}
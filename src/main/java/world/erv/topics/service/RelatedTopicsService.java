@@ -0,0 +1,179 @@
+package world.erv.topics.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import world.erv.topics.dto.RelatedTopicDto;
+import world.erv.topics.lock.JobLease;
+import world.erv.topics.lock.JobLockManager;
+import world.erv.topics.repository.RelatedTopicRepository;
+import world.erv.topics.trend.TopicCorrelator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Relates topics whose daily view series move together. The featured feed reports each topic's views for the whole
+ * day, so the hourly snapshots within a day only repeat or refine one number and a topic gets one point per day.
+ * Every hour, the last {@code related.window} of history is turned into one aligned series per topic, every pair is
+ * correlated on a dedicated fork/join pool (see {@link TopicCorrelator}), and each topic's strongest relations
+ * replace the stored ones.
+ */
+@Service
+@ConditionalOnProperty(name = "features.wikipedia-service.enabled", havingValue = "true")
+public class RelatedTopicsService {
+
+    private static final Logger log = LoggerFactory.getLogger(RelatedTopicsService.class);
+
+    // The highest snapshot of each topic on each day of the window, i.e. its latest count of that day's views
+    private static final String SERIES_SQL = "SELECT topic_id, " +
+            "date_trunc('day', created_at AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' AS day, max(views) AS views " +
+            "FROM wikipedia_view_history " +
+            "WHERE created_at >= :from AND created_at < :to AND views IS NOT NULL " +
+            "GROUP BY topic_id, day";
+
+    private record Series(long[] topicIds, long[][] views, long[][] presence) {
+    }
+
+    private final DatabaseClient databaseClient;
+    private final RelatedTopicRepository relatedTopicRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final JobLockManager jobLockManager;
+    private final ForkJoinPool pool;
+    private final TopicCorrelator correlator;
+    private final Duration window;
+    private final Timer computeTimer;
+
+    public RelatedTopicsService(
+            DatabaseClient databaseClient,
+            RelatedTopicRepository relatedTopicRepository,
+            TransactionalOperator transactionalOperator,
+            JobLockManager jobLockManager,
+            MeterRegistry meterRegistry,
+            @Value("${related.window:P28D}") Duration window,
+            @Value("${related.min-overlap-days:5}") int minOverlapDays,
+            @Value("${related.min-correlation:0.5}") double minCorrelation,
+            @Value("${related.max-related:10}") int maxRelated,
+            @Value("${related.parallelism:0}") int parallelism
+    ) {
+        this.databaseClient = databaseClient;
+        this.relatedTopicRepository = relatedTopicRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.jobLockManager = jobLockManager;
+        // Its own pool, sized to every core by default, so the job neither competes with nor starves the common pool
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.correlator = new TopicCorrelator(pool, minOverlapDays, minCorrelation, maxRelated);
+        this.window = window;
+        this.computeTimer = Timer.builder("topics.related.compute")
+                .description("Time spent correlating topic view series")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Scheduled(cron = "${related.cron:0 30 * * * *}", zone = "UTC")
+    public void runRelatedTopics() {
+        jobLockManager.runExclusive("related-topics", this::updateRelatedTopics)
+                .subscribe(null, error -> log.error("Failed to update related topics", error));
+    }
+
+    /**
+     * Returns the topics most strongly correlated with the given one as of the last run, strongest first.
+     */
+    public Flux<RelatedTopicDto> getRelatedTopics(long topicId, int limit) {
+        return relatedTopicRepository.findRelated(topicId, limit);
+    }
+
+    private Mono<Void> updateRelatedTopics(JobLease jobLease) {
+        Instant computedAt = Instant.now();
+        // Up to the end of today, whose views are still being counted
+        Instant to = computedAt.truncatedTo(ChronoUnit.DAYS).plus(Duration.ofDays(1));
+        Instant from = to.minus(window);
+
+        return loadSeries(from, to)
+                .publishOn(Schedulers.boundedElastic())
+                .map(this::correlate)
+                .flatMap(entries -> jobLease.checkFence()
+                        .then(relatedTopicRepository.replaceAll(entries, computedAt))
+                        .as(transactionalOperator::transactional))
+                .doOnNext(rows -> log.info("Stored {} related topic pairs", rows))
+                .then();
+    }
+
+    /**
+     * Reads the window's history into one aligned series per topic, an element per day starting at {@code from},
+     * with a bit set in the topic's presence for every day it was observed.
+     */
+    private Mono<Series> loadSeries(Instant from, Instant to) {
+        int days = (int) Duration.between(from, to).toDays();
+        int words = (days + 63) >>> 6;
+        Map<Long, Integer> indexes = new HashMap<>();
+        List<long[]> views = new ArrayList<>();
+        List<long[]> presence = new ArrayList<>();
+        List<Long> topicIds = new ArrayList<>();
+
+        return databaseClient.sql(SERIES_SQL)
+                .bind("from", from)
+                .bind("to", to)
+                .map(row -> {
+                    long topicId = row.get("topic_id", Long.class);
+                    int day = (int) Duration.between(from, row.get("day", Instant.class)).toDays();
+                    int index = indexes.computeIfAbsent(topicId, id -> {
+                        topicIds.add(id);
+                        views.add(new long[days]);
+                        presence.add(new long[words]);
+                        return topicIds.size() - 1;
+                    });
+                    views.get(index)[day] = row.get("views", Long.class);
+                    presence.get(index)[day >>> 6] |= 1L << (day & 63);
+                    return 1;
+                })
+                .all()
+                .then(Mono.fromCallable(() -> new Series(
+                        topicIds.stream().mapToLong(Long::longValue).toArray(),
+                        views.toArray(long[][]::new),
+                        presence.toArray(long[][]::new)
+                )));
+    }
+
+    private List<RelatedTopicRepository.Entry> correlate(Series series) {
+        long started = System.nanoTime();
+        List<List<TopicCorrelator.Relation>> relations = computeTimer.record(
+                () -> correlator.correlate(series.views(), series.presence()));
+
+        List<RelatedTopicRepository.Entry> entries = new ArrayList<>();
+        for (List<TopicCorrelator.Relation> related : relations) {
+            for (TopicCorrelator.Relation relation : related) {
+                entries.add(new RelatedTopicRepository.Entry(
+                        series.topicIds()[relation.topic()],
+                        series.topicIds()[relation.related()],
+                        relation.correlation(),
+                        relation.overlap()
+                ));
+            }
+        }
+        log.info("Correlated {} topics on {} threads in {} ms", series.topicIds().length, pool.getParallelism(),
+                (System.nanoTime() - started) / 1_000_000);
+        return entries;
+    }
+}
@@ -0,0 +1,10 @@
+package world.erv.topics.service;
+
+/**
+ * Blocking text-generation client used by {@link SummaryService}. Calls are always made from the service's
+ * virtual threads, never from an event-loop thread, so implementations are free to block.
+ */
+public interface SummaryClient {
+
+    String generate(String prompt);
+}
@@ -1,72 +1,209 @@
 package world.erv.topics.service;
 
-import com.google.genai.Client;
-import com.google.genai.types.GenerateContentConfig;
-import com.google.genai.types.GenerateContentResponse;
-import com.google.genai.types.GoogleSearch;
-import com.google.genai.types.Tool;
-import jakarta.annotation.PostConstruct;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import world.erv.topics.event.EventConsumer;
 import world.erv.topics.event.WikipediaFeaturedFetchEvent;
-
-import java.util.Collections;
+import world.erv.topics.model.RedditSummary;
+import world.erv.topics.model.Topic;
+import world.erv.topics.repository.RedditSummaryRepository;
+import world.erv.topics.repository.TopicRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
 
 @Service
 @ConditionalOnProperty(name = "features.summary-service.enabled", havingValue = "true")
-public class SummaryService {
+public class SummaryService implements EventConsumer<WikipediaFeaturedFetchEvent> {
 
     private static final Logger log = LoggerFactory.getLogger(SummaryService.class);
+    private static final ZoneId UTC = ZoneId.of("UTC");
+
+    private final SummaryClient summaryClient;
+    private final TopicRepository topicRepository;
+    private final RedditSummaryRepository redditSummaryRepository;
+    private final ObjectMapper objectMapper;
+    // Model calls block, so they run on virtual threads and never on an event-loop thread
+    private final Scheduler scheduler = Schedulers.fromExecutorService(
+            Executors.newVirtualThreadPerTaskExecutor(),
+            "summary"
+    );
+    // Caps concurrent model calls across every caller
+    private final Semaphore callPermits;
+    private final int maxConcurrentCalls;
+    private final int batchSize;
+    private final Duration callTimeout;
+
+    public SummaryService(
+            SummaryClient summaryClient,
+            TopicRepository topicRepository,
+            RedditSummaryRepository redditSummaryRepository,
+            ObjectMapper objectMapper,
+            @Value("${summary.max-concurrent-calls:4}") int maxConcurrentCalls,
+            @Value("${summary.batch-size:1}") int batchSize,
+            @Value("${summary.call-timeout:PT2M}") Duration callTimeout
+    ) {
+        this.summaryClient = summaryClient;
+        this.topicRepository = topicRepository;
+        this.redditSummaryRepository = redditSummaryRepository;
+        this.objectMapper = objectMapper;
+        this.callPermits = new Semaphore(maxConcurrentCalls, true);
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.batchSize = Math.max(1, batchSize);
+        this.callTimeout = callTimeout;
+    }
 
-    @Value("${google.api.key}")
-    private String apiKey;
-
-    private Client client;
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
 
-    public SummaryService() {}
+    @Override
+    public String name() {
+        return "summary";
+    }
 
-    @PostConstruct
-    public void init() {
-        this.client = Client.builder()
-                .apiKey(apiKey)
-                .build();
+    @Override
+    public Class<WikipediaFeaturedFetchEvent> eventType() {
+        return WikipediaFeaturedFetchEvent.class;
     }
 
-    @EventListener
-    public Mono<Void> handleWikipediaArticlesUpdatedEvent(WikipediaFeaturedFetchEvent event) {
+    @Override
+    public Mono<Void> consume(WikipediaFeaturedFetchEvent event) {
         log.info("[EVENT: Consumed {}", event);
 
-        return Mono.empty();
+        return updateDiscussionData(event.getTopicTitles());
     }
 
-    private Mono<Void> updateDiscussionData() {
-        return Mono.empty();
+    /**
+     * Summarizes every listed topic that hasn't been summarized yet today (UTC) and stores the results. Topics are
+     * sent to the model {@code batchSize} at a time, and each batch is stored as soon as its call returns.
+     */
+    public Mono<Void> updateDiscussionData(List<String> topicTitles) {
+        Instant startOfDay = LocalDate.now(UTC).atStartOfDay(UTC).toInstant();
+
+        return topicRepository.findByTitleIn(topicTitles.stream().distinct().toList())
+                .collectList()
+                .flatMap(topics -> {
+                    if (topics.isEmpty()) {
+                        return Mono.just(List.<Topic>of());
+                    }
+
+                    List<Long> topicIds = topics.stream().map(Topic::getId).toList();
+                    return redditSummaryRepository.findTopicIdsSummarizedSince(startOfDay, topicIds)
+                            .collect(Collectors.toSet())
+                            .map(summarized -> topics.stream()
+                                    .filter(topic -> !summarized.contains(topic.getId()))
+                                    .toList());
+                })
+                .flatMapMany(pending -> Flux.fromIterable(pending).buffer(batchSize))
+                .flatMap(batch -> summarize(batch)
+                                .collectList()
+                                .flatMap(summaries -> redditSummaryRepository.saveAll(summaries).count()),
+                        maxConcurrentCalls)
+                .reduce(0L, Long::sum)
+                .doOnNext(count -> log.info("Stored {} discussion summaries", count))
+                .then();
     }
 
-    private String getRedditSummary(String subject) {
-        Tool searchTool = Tool.builder()
-                .googleSearch(GoogleSearch.builder().build())
-                .build();
+    /**
+     * Summarizes a batch of topics in one model call. A failed call, or one that doesn't return within
+     * {@code summary.call-timeout}, is logged and yields nothing, so its topics are retried on the next ingestion run.
+     */
+    private Flux<RedditSummary> summarize(List<Topic> topics) {
+        Map<String, Topic> topicsBySubject = new HashMap<>();
+        for (Topic topic : topics) {
+            topicsBySubject.put(toSubject(topic.getTitle()), topic);
+        }
+
+        return Mono.fromCallable(() -> topics.size() == 1
+                        ? Map.of(toSubject(topics.get(0).getTitle()), generate(singlePrompt(topics.get(0))))
+                        : parseBatchResponse(generate(batchPrompt(topicsBySubject.keySet()))))
+                .subscribeOn(scheduler)
+                .timeout(callTimeout)
+                .flatMapIterable(summariesBySubject -> summariesBySubject.entrySet().stream()
+                        .filter(entry -> topicsBySubject.containsKey(entry.getKey()))
+                        .map(entry -> {
+                            RedditSummary summary = new RedditSummary();
+                            summary.setTopicId(topicsBySubject.get(entry.getKey()).getId());
+                            summary.setSummary(entry.getValue());
+                            return summary;
+                        })
+                        .toList())
+                .onErrorResume(error -> {
+                    log.warn("Failed to summarize {}", topicsBySubject.keySet(), error);
+                    return Flux.empty();
+                });
+    }
 
-        GenerateContentConfig contentConfig = GenerateContentConfig.builder()
-                .tools(Collections.singletonList(searchTool))
-                .build();
+    private String generate(String prompt) throws InterruptedException {
+        callPermits.acquire();
+        try {
+            return summaryClient.generate(prompt);
+        } finally {
+            callPermits.release();
+        }
+    }
+
+    private static String toSubject(String title) {
+        return title.replace('_', ' ');
+    }
 
-        String prompt = String.format("Search for recent discussions on Reddit about '%s'. List the 3 most " +
+    private static String singlePrompt(Topic topic) {
+        return String.format("Search for recent discussions on Reddit about '%s'. List the 3 most " +
                 "frequently mentioned facts, controversies, or recent news directly from the discussion. Do not " +
-                "make conclusions which aren't supported by user discussion.", subject);
+                "make conclusions which aren't supported by user discussion.", toSubject(topic.getTitle()));
+    }
 
-        GenerateContentResponse contentResponse = client.models.generateContent(
-                "gemini-2.0-flash",
-                prompt,
-                contentConfig
-        );
+    private static String batchPrompt(Set<String> subjects) {
+        StringBuilder prompt = new StringBuilder("For each subject below, search for recent discussions on Reddit " +
+                "about it. List the 3 most frequently mentioned facts, controversies, or recent news directly from " +
+                "the discussion. Do not make conclusions which aren't supported by user discussion. Respond with " +
+                "only a JSON object whose keys are the subjects exactly as written below and whose values are the " +
+                "summaries as strings.\n\nSubjects:\n");
+        for (String subject : subjects) {
+            prompt.append("- ").append(subject).append('\n');
+        }
+        return prompt.toString();
+    }
 
-        return contentResponse.text();
+    /**
+     * Extracts the subject-to-summary object from a batched response, tolerating prose or code fences around it.
+     */
+    private Map<String, String> parseBatchResponse(String response) throws JsonProcessingException {
+        int start = response.indexOf('{');
+        int end = response.lastIndexOf('}');
+        if (start < 0 || end < start) {
+            throw new IllegalStateException("Batched summary response contains no JSON object");
+        }
+
+        JsonNode summaries = objectMapper.readTree(response.substring(start, end + 1));
+        Map<String, String> summariesBySubject = new HashMap<>();
+        summaries.properties().forEach(entry -> {
+            if (entry.getValue().isTextual()) {
+                summariesBySubject.put(entry.getKey(), entry.getValue().asText());
+            }
+        });
+        return summariesBySubject;
     }
 }
@@ -0,0 +1,74 @@
+package world.erv.topics.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of each topic's latest tone chart, held as the stored JSON bytes so it can be written to a response
+ * as-is. Entries older than the TTL are still served but reported as stale, and the cache tracks which topics
+ * already have a refresh running so a stale entry triggers at most one.
+ */
+@Component
+@ConditionalOnProperty(name = "features.gdelt-service.enabled", havingValue = "true")
+public class ToneChartCache {
+
+    public record Entry(byte[] json, Instant fetchedAt) {
+    }
+
+    private final Duration ttl;
+    private final Map<Long, Entry> entries;
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+
+    public ToneChartCache(
+            @Value("${gdelt.tone-chart-cache.ttl:PT1H}") Duration ttl,
+            @Value("${gdelt.tone-chart-cache.max-entries:1000}") int maxEntries
+    ) {
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized Entry get(long topicId) {
+        return entries.get(topicId);
+    }
+
+    /**
+     * Stores a chart unless a newer one is already cached, and returns whichever entry is kept.
+     */
+    public synchronized Entry put(long topicId, byte[] json, Instant fetchedAt) {
+        Entry existing = entries.get(topicId);
+        if (existing != null && existing.fetchedAt().isAfter(fetchedAt)) {
+            return existing;
+        }
+        Entry entry = new Entry(json, fetchedAt);
+        entries.put(topicId, entry);
+        return entry;
+    }
+
+    public boolean isStale(Entry entry) {
+        return entry.fetchedAt().plus(ttl).isBefore(Instant.now());
+    }
+
+    /**
+     * Claims the refresh of a topic. Returns false if one is already running.
+     */
+    public boolean tryStartRefresh(long topicId) {
+        return refreshing.add(topicId);
+    }
+
+    public void finishRefresh(long topicId) {
+        refreshing.remove(topicId);
+    }
+}
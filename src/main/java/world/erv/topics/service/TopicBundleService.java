@@ -0,0 +1,186 @@
+package world.erv.topics.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import world.erv.topics.dto.TopicBundleDto;
+import world.erv.topics.model.GdeltToneChart;
+import world.erv.topics.model.RedditSummary;
+import world.erv.topics.model.Topic;
+import world.erv.topics.model.WikipediaViewHistory;
+import world.erv.topics.repository.GdeltToneChartRepository;
+import world.erv.topics.repository.RedditSummaryRepository;
+import world.erv.topics.repository.TopicRepository;
+import world.erv.topics.repository.WikipediaViewHistoryRepository;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Assembles topic detail bundles. Each requested part is one set-based query covering every topic in the request,
+ * and the queries run concurrently, so a bundle of any size costs one round of queries.
+ */
+@Service
+@ConditionalOnProperty(name = "features.wikipedia-service.enabled", havingValue = "true")
+public class TopicBundleService {
+
+    private static final Logger log = LoggerFactory.getLogger(TopicBundleService.class);
+
+    /**
+     * The parts of a bundle a client can select with {@code fields=}.
+     */
+    public enum Part {
+        TOPIC("topic"),
+        VIEWS("views"),
+        TONE("tone"),
+        SUMMARY("summary");
+
+        private final String label;
+
+        Part(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public static Part fromLabel(String label) {
+            for (Part part : values()) {
+                if (part.label.equalsIgnoreCase(label.strip())) {
+                    return part;
+                }
+            }
+            throw new IllegalArgumentException("Unknown field: " + label);
+        }
+
+        /**
+         * Parses a {@code fields=} selector; no selector means every part.
+         */
+        public static Set<Part> parse(List<String> labels) {
+            if (labels == null || labels.isEmpty()) {
+                return EnumSet.allOf(Part.class);
+            }
+            Set<Part> parts = EnumSet.noneOf(Part.class);
+            for (String label : labels) {
+                parts.add(fromLabel(label));
+            }
+            return parts;
+        }
+    }
+
+    private final TopicRepository topicRepository;
+    private final WikipediaViewHistoryRepository wikipediaViewHistoryRepository;
+    private final GdeltToneChartRepository gdeltToneChartRepository;
+    private final RedditSummaryRepository redditSummaryRepository;
+    private final ObjectMapper objectMapper;
+
+    public TopicBundleService(
+            TopicRepository topicRepository,
+            WikipediaViewHistoryRepository wikipediaViewHistoryRepository,
+            GdeltToneChartRepository gdeltToneChartRepository,
+            RedditSummaryRepository redditSummaryRepository,
+            ObjectMapper objectMapper
+    ) {
+        this.topicRepository = topicRepository;
+        this.wikipediaViewHistoryRepository = wikipediaViewHistoryRepository;
+        this.gdeltToneChartRepository = gdeltToneChartRepository;
+        this.redditSummaryRepository = redditSummaryRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Returns the topic's bundle, or empty if there is no such topic.
+     */
+    public Mono<TopicBundleDto> getBundle(long topicId, Set<Part> parts) {
+        return getBundles(List.of(topicId), parts).next();
+    }
+
+    /**
+     * Returns a bundle for every topic that exists, in the order requested.
+     */
+    public Flux<TopicBundleDto> getBundles(List<Long> topicIds, Set<Part> parts) {
+        List<Long> ids = topicIds.stream().distinct().toList();
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+
+        // The topic row is always read, since it decides whether there is a bundle at all
+        Mono<Map<Long, Topic>> topics = topicRepository.findAllById(ids).collectMap(Topic::getId);
+        Mono<Map<Long, WikipediaViewHistory>> views = latest(parts.contains(Part.VIEWS),
+                () -> wikipediaViewHistoryRepository.findLatestByTopicIdIn(ids), WikipediaViewHistory::getTopicId);
+        Mono<Map<Long, GdeltToneChart>> toneCharts = latest(parts.contains(Part.TONE),
+                () -> gdeltToneChartRepository.findLatestByTopicIdIn(ids), GdeltToneChart::getTopicId);
+        Mono<Map<Long, RedditSummary>> summaries = latest(parts.contains(Part.SUMMARY),
+                () -> redditSummaryRepository.findLatestByTopicIdIn(ids), RedditSummary::getTopicId);
+
+        return Mono.zip(topics, views, toneCharts, summaries)
+                .flatMapIterable(found -> ids.stream()
+                        .filter(found.getT1()::containsKey)
+                        .map(id -> toBundle(
+                                found.getT1().get(id),
+                                parts,
+                                found.getT2().get(id),
+                                found.getT3().get(id),
+                                found.getT4().get(id)
+                        ))
+                        .toList());
+    }
+
+    private static <T> Mono<Map<Long, T>> latest(
+            boolean requested,
+            Supplier<Flux<T>> query,
+            Function<T, Long> topicId
+    ) {
+        return requested ? query.get().collectMap(topicId) : Mono.just(Map.of());
+    }
+
+    private TopicBundleDto toBundle(
+            Topic topic,
+            Set<Part> parts,
+            WikipediaViewHistory history,
+            GdeltToneChart toneChart,
+            RedditSummary summary
+    ) {
+        boolean includeTopic = parts.contains(Part.TOPIC);
+
+        return new TopicBundleDto(
+                topic.getId(),
+                includeTopic ? topic.getTitle() : null,
+                includeTopic ? topic.getWikipediaUrl() : null,
+                history == null ? null : new TopicBundleDto.Views(
+                        history.getViews(),
+                        history.getViewTrend(),
+                        history.getCreatedAt()
+                ),
+                toneChart == null ? null : readToneChart(toneChart),
+                summary == null ? null : new TopicBundleDto.Summary(summary.getSummary(), summary.getCreatedAt())
+        );
+    }
+
+    /**
+     * Parses the stored chart so it nests in any of the API's encodings, not only JSON.
+     */
+    private JsonNode readToneChart(GdeltToneChart toneChart) {
+        if (toneChart.getToneChart() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(toneChart.getToneChart().asArray());
+        } catch (IOException e) {
+            log.warn("Stored tone chart {} of topic {} is not valid JSON",
+                    toneChart.getId(), toneChart.getTopicId(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package world.erv.topics.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import world.erv.topics.dto.TopicHistoryDto;
+import world.erv.topics.model.RollupResolution;
+import world.erv.topics.repository.WikipediaViewRollupRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Service
+@ConditionalOnProperty(name = "features.wikipedia-service.enabled", havingValue = "true")
+public class TopicHistoryService {
+
+    private final WikipediaViewRollupRepository wikipediaViewRollupRepository;
+    private final int maxPoints;
+
+    public TopicHistoryService(
+            WikipediaViewRollupRepository wikipediaViewRollupRepository,
+            @Value("${history.max-points:500}") int maxPoints
+    ) {
+        this.wikipediaViewRollupRepository = wikipediaViewRollupRepository;
+        this.maxPoints = maxPoints;
+    }
+
+    /**
+     * Returns a topic's view history over {@code [from, to)}. Without an explicit resolution, the finest rollup
+     * that covers the range in at most {@code history.max-points} buckets is used.
+     */
+    public Mono<TopicHistoryDto> getTopicHistory(
+            long topicId,
+            Instant from,
+            Instant to,
+            RollupResolution resolution
+    ) {
+        RollupResolution selected = resolution != null ? resolution : selectResolution(from, to);
+        Instant bucketFrom = selected.bucketStart(from);
+
+        return wikipediaViewRollupRepository.findHistory(topicId, selected, bucketFrom, to)
+                .collectList()
+                .map(points -> new TopicHistoryDto(topicId, selected.getUnit(), bucketFrom, to, points));
+    }
+
+    private RollupResolution selectResolution(Instant from, Instant to) {
+        Duration range = Duration.between(from, to);
+        for (RollupResolution resolution : RollupResolution.values()) {
+            if (range.dividedBy(resolution.getBucketSize()) <= maxPoints) {
+                return resolution;
+            }
+        }
+        return RollupResolution.WEEK;
+    }
+}
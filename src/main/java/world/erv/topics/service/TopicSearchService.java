@@ -0,0 +1,253 @@
+package world.erv.topics.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import world.erv.topics.dto.TopicSearchResultDto;
+import world.erv.topics.event.EventConsumer;
+import world.erv.topics.event.WikipediaFeaturedFetchEvent;
+import world.erv.topics.model.Topic;
+import world.erv.topics.repository.TopicRepository;
+import world.erv.topics.search.TopicSearchIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Serves title search from an in-memory {@link TopicSearchIndex}. The full index is loaded at startup; topics created
+ * since, by whichever instance ran the ingestion, are read back every {@code search.index.refresh-interval} and
+ * whenever an ingestion run's event is delivered here. They go into a small delta index that is rebuilt on every
+ * update and merged into the main one once it grows past {@code search.index.merge-threshold}. The index stops
+ * taking new topics once its estimated footprint reaches {@code search.index.max-memory}.
+ */
+@Service
+@ConditionalOnProperty(name = "features.wikipedia-service.enabled", havingValue = "true")
+public class TopicSearchService implements EventConsumer<WikipediaFeaturedFetchEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(TopicSearchService.class);
+
+    // Swapped as a unit so a search never sees a delta that was already merged into the main index
+    private record Indexes(TopicSearchIndex main, TopicSearchIndex delta) {
+
+        int size() {
+            return main.size() + delta.size();
+        }
+
+        long memoryBytes() {
+            return main.estimateMemoryBytes() + delta.estimateMemoryBytes();
+        }
+    }
+
+    private final TopicRepository topicRepository;
+    private final long maxMemoryBytes;
+    private final int mergeThreshold;
+    private volatile Indexes indexes = new Indexes(TopicSearchIndex.empty(), TopicSearchIndex.empty());
+    // Guarded by this
+    private boolean full = false;
+    // Guarded by this; the highest topic id read so far, or -1 until the full index has been loaded. Topics are only
+    // ever read in id order above it, so it is all the index needs to tell which topics it already has.
+    private long lastSeenId = -1;
+
+    public TopicSearchService(
+            TopicRepository topicRepository,
+            MeterRegistry meterRegistry,
+            @Value("${search.index.max-memory:64MB}") DataSize maxMemory,
+            @Value("${search.index.merge-threshold:2048}") int mergeThreshold
+    ) {
+        this.topicRepository = topicRepository;
+        this.maxMemoryBytes = maxMemory.toBytes();
+        this.mergeThreshold = mergeThreshold;
+
+        Gauge.builder("topics.search.index.size", this, service -> service.indexes.size())
+                .description("Topics in the title search index")
+                .register(meterRegistry);
+        Gauge.builder("topics.search.index.memory", this, service -> service.indexes.memoryBytes())
+                .description("Estimated heap footprint of the title search index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload().subscribe(null, error -> log.error("Failed to load the topic search index", error));
+    }
+
+    @Override
+    public String name() {
+        return "topic-search-index";
+    }
+
+    @Override
+    public Class<WikipediaFeaturedFetchEvent> eventType() {
+        return WikipediaFeaturedFetchEvent.class;
+    }
+
+    // The run's topics are already committed, so reading every topic created since the last refresh covers them
+    @Override
+    public Mono<Void> consume(WikipediaFeaturedFetchEvent event) {
+        return refresh();
+    }
+
+    @Scheduled(
+            initialDelayString = "${search.index.refresh-interval:PT1M}",
+            fixedDelayString = "${search.index.refresh-interval:PT1M}"
+    )
+    public Mono<Void> refreshPeriodically() {
+        return refresh()
+                .onErrorResume(error -> {
+                    log.error("Failed to refresh the topic search index", error);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Adds the topics created since the highest id already read. Does nothing until the full index has loaded.
+     */
+    public Mono<Void> refresh() {
+        return Mono.defer(() -> {
+            long afterId;
+            synchronized (this) {
+                afterId = lastSeenId;
+            }
+            if (afterId < 0) {
+                return Mono.empty();
+            }
+            return topicRepository.findByIdGreaterThanOrderById(afterId)
+                    .collectList()
+                    .filter(topics -> !topics.isEmpty())
+                    .publishOn(Schedulers.boundedElastic())
+                    .doOnNext(this::add)
+                    .then();
+        });
+    }
+
+    /**
+     * Rebuilds the whole index from the topics table.
+     */
+    public Mono<Void> reload() {
+        return topicRepository.findAll()
+                .collectList()
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(this::replace)
+                .then();
+    }
+
+    /**
+     * Returns up to {@code limit} topics matching the query, best matches first.
+     */
+    public List<TopicSearchResultDto> search(String query, int limit) {
+        Indexes current = indexes;
+        List<TopicSearchIndex.Match> matches = new ArrayList<>(current.main().search(query, limit));
+        matches.addAll(current.delta().search(query, limit));
+        // Each index only falls back to fuzzy matching on its own, so drop fuzzy matches if either had exact ones
+        if (matches.stream().anyMatch(match -> !match.fuzzy())) {
+            matches.removeIf(TopicSearchIndex.Match::fuzzy);
+        }
+
+        Set<Long> seen = new HashSet<>();
+        return matches.stream()
+                .sorted(TopicSearchIndex.MATCH_ORDER)
+                .filter(match -> seen.add(match.id()))
+                .limit(limit)
+                .map(match -> new TopicSearchResultDto(match.id(), match.title()))
+                .toList();
+    }
+
+    private synchronized void replace(List<Topic> topics) {
+        long started = System.nanoTime();
+        full = false;
+        lastSeenId = topics.stream().mapToLong(Topic::getId).max().orElse(0);
+
+        List<Topic> accepted = new ArrayList<>(topics.size());
+        long bytes = 0;
+        for (Topic topic : topics.stream().sorted(Comparator.comparing(Topic::getId)).toList()) {
+            bytes += TopicSearchIndex.estimateTitleBytes(topic.getTitle());
+            if (bytes > maxMemoryBytes) {
+                markFull();
+                break;
+            }
+            accepted.add(topic);
+        }
+
+        indexes = new Indexes(build(accepted), TopicSearchIndex.empty());
+        log.info("Loaded {} topics into the search index in {} ms (~{} KB)", accepted.size(),
+                (System.nanoTime() - started) / 1_000_000, indexes.memoryBytes() / 1024);
+    }
+
+    private synchronized void add(List<Topic> topics) {
+        Indexes current = indexes;
+        List<Topic> added = new ArrayList<>();
+        long bytes = current.memoryBytes();
+        for (Topic topic : topics) {
+            // Already read by an earlier or concurrent refresh, or by the full load
+            if (topic.getId() <= lastSeenId) {
+                continue;
+            }
+            lastSeenId = topic.getId();
+            if (full) {
+                continue;
+            }
+            bytes += TopicSearchIndex.estimateTitleBytes(topic.getTitle());
+            if (bytes > maxMemoryBytes) {
+                markFull();
+                break;
+            }
+            added.add(topic);
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+
+        TopicSearchIndex delta = build(current.delta(), added);
+        if (delta.size() >= mergeThreshold) {
+            indexes = new Indexes(merge(current.main(), delta.getIds(), delta.getTitles()), TopicSearchIndex.empty());
+            log.info("Merged {} new topics into the search index ({} topics)", delta.size(), indexes.size());
+        } else {
+            indexes = new Indexes(current.main(), delta);
+        }
+    }
+
+    private void markFull() {
+        if (!full) {
+            full = true;
+            log.warn("Topic search index reached its {} byte limit; new topics won't be searchable", maxMemoryBytes);
+        }
+    }
+
+    private static TopicSearchIndex build(List<Topic> topics) {
+        return build(TopicSearchIndex.empty(), topics);
+    }
+
+    private static TopicSearchIndex build(TopicSearchIndex base, List<Topic> topics) {
+        long[] ids = new long[topics.size()];
+        String[] titles = new String[topics.size()];
+        for (int i = 0; i < topics.size(); i++) {
+            ids[i] = topics.get(i).getId();
+            titles[i] = topics.get(i).getTitle();
+        }
+        return merge(base, ids, titles);
+    }
+
+    private static TopicSearchIndex merge(TopicSearchIndex base, long[] ids, String[] titles) {
+        int n = base.size();
+        long[] mergedIds = Arrays.copyOf(base.getIds(), n + ids.length);
+        String[] mergedTitles = Arrays.copyOf(base.getTitles(), n + titles.length);
+        System.arraycopy(ids, 0, mergedIds, n, ids.length);
+        System.arraycopy(titles, 0, mergedTitles, n, titles.length);
+        return TopicSearchIndex.build(mergedIds, mergedTitles);
+    }
+}
@@ -0,0 +1,175 @@
+package world.erv.topics.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import world.erv.topics.dto.TopicDto;
+import world.erv.topics.dto.TrendingTopicsDiff;
+import world.erv.topics.dto.TrendingTopicsSnapshot;
+import world.erv.topics.event.EventConsumer;
+import world.erv.topics.event.WikipediaFeaturedFetchEvent;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pushes today's trending ranking to every connected dashboard. The ranking is read once per ingestion run and
+ * published to a single replay-latest sink that all subscribers share; each subscriber is then sent either the
+ * diff against the ranking it last received or, when it has fallen behind, the full ranking. Only the instance that
+ * ran the ingestion is sent its event, so every instance also re-reads the ranking on a schedule, which picks up
+ * another instance's run once the cached ranking is revalidated.
+ */
+@Component
+@ConditionalOnProperty(name = "features.wikipedia-service.enabled", havingValue = "true")
+public class TrendingTopicsBroadcaster implements EventConsumer<WikipediaFeaturedFetchEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendingTopicsBroadcaster.class);
+    private static final ZoneId UTC = ZoneId.of("UTC");
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(30);
+
+    private record Update(TrendingTopicsSnapshot snapshot, TrendingTopicsDiff diff) {
+    }
+
+    private final TrendingTopicsCache trendingTopicsCache;
+    private final Sinks.Many<Update> updates = Sinks.many().replay().latest();
+    // Guarded by this; the last published snapshot
+    private TrendingTopicsSnapshot current;
+
+    public TrendingTopicsBroadcaster(TrendingTopicsCache trendingTopicsCache) {
+        this.trendingTopicsCache = trendingTopicsCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void publishOnStartup() {
+        refresh().subscribe();
+    }
+
+    @Scheduled(
+            initialDelayString = "${wikipedia.trending-cache.revalidate-after:PT30S}",
+            fixedDelayString = "${wikipedia.trending-cache.revalidate-after:PT30S}"
+    )
+    public Mono<Void> refreshPeriodically() {
+        return refresh();
+    }
+
+    @Override
+    public String name() {
+        return "trending-topics";
+    }
+
+    @Override
+    public Class<WikipediaFeaturedFetchEvent> eventType() {
+        return WikipediaFeaturedFetchEvent.class;
+    }
+
+    // Drops the day's stale cache entry before reading the new ranking back through the cache
+    @Override
+    public Mono<Void> consume(WikipediaFeaturedFetchEvent event) {
+        trendingTopicsCache.invalidate(LocalDate.ofInstant(event.getCreatedAt(), UTC));
+        return refresh();
+    }
+
+    /**
+     * Returns the event stream for one subscriber: the current ranking first, then a diff per ingestion run.
+     */
+    public Flux<ServerSentEvent<Object>> subscribe() {
+        return Flux.defer(() -> {
+            long[] lastSentVersion = {-1};
+
+            Flux<ServerSentEvent<Object>> rankings = updates.asFlux()
+                    // A slow client skips straight to the newest ranking instead of queueing every diff
+                    .onBackpressureLatest()
+                    .map(update -> {
+                        boolean contiguous = update.diff() != null
+                                && update.diff().previousVersion() == lastSentVersion[0];
+                        lastSentVersion[0] = update.snapshot().version();
+
+                        if (contiguous) {
+                            return ServerSentEvent.<Object>builder(update.diff())
+                                    .id(Long.toString(update.diff().version()))
+                                    .event("diff")
+                                    .build();
+                        }
+                        return ServerSentEvent.<Object>builder(update.snapshot())
+                                .id(Long.toString(update.snapshot().version()))
+                                .event("ranking")
+                                .build();
+                    });
+
+            Flux<ServerSentEvent<Object>> heartbeats = Flux.interval(HEARTBEAT_INTERVAL)
+                    .map(tick -> ServerSentEvent.builder().comment("heartbeat").build())
+                    .onBackpressureDrop();
+
+            return Flux.merge(rankings, heartbeats);
+        });
+    }
+
+    private Mono<Void> refresh() {
+        LocalDate today = LocalDate.now(UTC);
+
+        return trendingTopicsCache.get(today)
+                .doOnNext(entry -> publish(today, entry.topics()))
+                .doOnError(error -> log.error("Failed to refresh trending topics stream", error))
+                .onErrorComplete()
+                .then();
+    }
+
+    private synchronized void publish(LocalDate date, List<TopicDto> topics) {
+        TrendingTopicsSnapshot previous = current;
+        if (previous != null && previous.date().equals(date) && previous.topics().equals(topics)) {
+            return;
+        }
+
+        long version = previous == null ? 1 : previous.version() + 1;
+        TrendingTopicsSnapshot snapshot = new TrendingTopicsSnapshot(version, date, topics);
+        // A diff across days would remove everything, so a new day starts from a full ranking
+        TrendingTopicsDiff diff = previous != null && previous.date().equals(date)
+                ? diff(previous, snapshot)
+                : null;
+
+        current = snapshot;
+        Sinks.EmitResult result = updates.tryEmitNext(new Update(snapshot, diff));
+        if (result.isFailure()) {
+            log.warn("Failed to publish trending topics update {}: {}", version, result);
+        }
+    }
+
+    private static TrendingTopicsDiff diff(TrendingTopicsSnapshot previous, TrendingTopicsSnapshot next) {
+        Map<Long, TopicDto> previousById = new HashMap<>();
+        for (TopicDto topic : previous.topics()) {
+            previousById.put(topic.id(), topic);
+        }
+
+        List<TopicDto> upserted = new ArrayList<>();
+        List<Long> ranking = new ArrayList<>(next.topics().size());
+        Set<Long> nextIds = new HashSet<>();
+        for (TopicDto topic : next.topics()) {
+            ranking.add(topic.id());
+            nextIds.add(topic.id());
+            if (!topic.equals(previousById.get(topic.id()))) {
+                upserted.add(topic);
+            }
+        }
+
+        List<Long> removed = previousById.keySet().stream()
+                .filter(id -> !nextIds.contains(id))
+                .toList();
+
+        return new TrendingTopicsDiff(next.version(), previous.version(), next.date(), upserted, removed, ranking);
+    }
+}
@@ -0,0 +1,170 @@
+package world.erv.topics.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import world.erv.topics.dto.TopicDto;
+import world.erv.topics.event.WikipediaFeaturedFetchEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded, per-day cache of the trending topic list. A day's entry only changes when an ingestion run writes new
+ * history for it. The instance that ran the ingestion drops the entry as soon as its
+ * {@link WikipediaFeaturedFetchEvent} is delivered (see {@link TrendingTopicsBroadcaster}); every other instance
+ * notices within {@code wikipedia.trending-cache.revalidate-after}, when a read finds the entry due for revalidation
+ * and the day's history has gained rows since it was loaded. Least recently read days are evicted to make room.
+ */
+@Component
+@ConditionalOnProperty(name = "features.wikipedia-service.enabled", havingValue = "true")
+public class TrendingTopicsCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendingTopicsCache.class);
+    private static final ZoneId UTC = ZoneId.of("UTC");
+    private static final int MAX_TOPICS = 50;
+
+    // History rows are only ever inserted, so the row count and latest timestamp change whenever a day's data does
+    private static final String WATERMARK_SQL = "SELECT count(*) AS row_count, max(created_at) AS latest " +
+            "FROM wikipedia_view_history " +
+            "WHERE created_at >= :start AND created_at < :end";
+
+    public record Entry(List<TopicDto> topics, String etag, Instant lastModified) {
+    }
+
+    private record Watermark(long rowCount, Instant latest) {
+    }
+
+    private record Cached(Entry entry, Watermark watermark, Instant checkedAt) {
+    }
+
+    private final WikipediaService wikipediaService;
+    private final DatabaseClient databaseClient;
+    private final Duration revalidateAfter;
+    private final Map<LocalDate, Cached> entries;
+    // Bumped on every invalidation so a load that raced with one doesn't repopulate stale data
+    private long generation = 0;
+
+    public TrendingTopicsCache(
+            WikipediaService wikipediaService,
+            DatabaseClient databaseClient,
+            @Value("${wikipedia.trending-cache.max-days:64}") int maxDays,
+            @Value("${wikipedia.trending-cache.revalidate-after:PT30S}") Duration revalidateAfter
+    ) {
+        this.wikipediaService = wikipediaService;
+        this.databaseClient = databaseClient;
+        this.revalidateAfter = revalidateAfter;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LocalDate, Cached> eldest) {
+                return size() > maxDays;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached entry for the day, loading it from the database on a miss. An entry last checked more than
+     * {@code revalidate-after} ago is first checked against the day's history and reloaded if that has changed.
+     */
+    public Mono<Entry> get(LocalDate date) {
+        return Mono.defer(() -> {
+            Cached cached;
+            long loadGeneration;
+            synchronized (this) {
+                cached = entries.get(date);
+                if (cached != null && Instant.now().isBefore(cached.checkedAt().plus(revalidateAfter))) {
+                    return Mono.just(cached.entry());
+                }
+                loadGeneration = generation;
+            }
+
+            if (cached == null) {
+                return load(date, loadGeneration);
+            }
+            return watermark(date).flatMap(watermark -> {
+                if (!watermark.equals(cached.watermark())) {
+                    log.info("Trending topics for {} changed on another instance; reloading", date);
+                    return load(date, loadGeneration);
+                }
+                synchronized (this) {
+                    if (generation == loadGeneration && entries.get(date) == cached) {
+                        entries.put(date, new Cached(cached.entry(), watermark, Instant.now()));
+                    }
+                }
+                return Mono.just(cached.entry());
+            });
+        });
+    }
+
+    // The watermark is read first, so rows written during the load only make the next check reload again
+    private Mono<Entry> load(LocalDate date, long loadGeneration) {
+        Instant start = date.atStartOfDay(UTC).toInstant();
+        Instant end = date.plusDays(1).atStartOfDay(UTC).toInstant();
+
+        return watermark(date).flatMap(watermark -> wikipediaService
+                .getMostViewedTopicsInInstantRange(MAX_TOPICS, start, end)
+                .collectList()
+                .map(topics -> {
+                    Entry entry = new Entry(
+                            List.copyOf(topics),
+                            computeEtag(topics),
+                            Instant.now().truncatedTo(ChronoUnit.SECONDS)
+                    );
+                    synchronized (this) {
+                        if (generation == loadGeneration) {
+                            entries.put(date, new Cached(entry, watermark, Instant.now()));
+                        }
+                    }
+                    return entry;
+                }));
+    }
+
+    private Mono<Watermark> watermark(LocalDate date) {
+        return databaseClient.sql(WATERMARK_SQL)
+                .bind("start", date.atStartOfDay(UTC).toInstant())
+                .bind("end", date.plusDays(1).atStartOfDay(UTC).toInstant())
+                .map((row, metadata) -> new Watermark(
+                        row.get("row_count", Long.class),
+                        row.get("latest", Instant.class)
+                ))
+                .one();
+    }
+
+    public synchronized void invalidate(LocalDate date) {
+        log.info("Invalidating trending topics cache for {}", date);
+        generation++;
+        entries.remove(date);
+    }
+
+    static String computeEtag(List<TopicDto> topics) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (TopicDto topic : topics) {
+            String row = topic.id() + "\u0000" + topic.title() + "\u0000" + topic.wikipediaUrl() + "\u0000"
+                    + topic.views() + "\u0000" + topic.viewTrend() + "\n";
+            digest.update(row.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Weak, since the same list is served as JSON, CBOR or Smile and possibly compressed
+        return "W/\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+    }
+}
@@ -0,0 +1,187 @@
+package world.erv.topics.service;
+
+import io.r2dbc.spi.R2dbcException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import world.erv.topics.lock.JobLockManager;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maintains the monthly partitions of {@code wikipedia_view_history}: creates partitions a few months ahead so
+ * inserts never find a month without one, and detaches or drops partitions that fall out of the retention window.
+ * Partitions are named {@code wikipedia_view_history_pYYYYMM} and cover one UTC calendar month.
+ */
+@Component
+public class ViewHistoryPartitionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ViewHistoryPartitionManager.class);
+
+    private static final String PARENT_TABLE = "wikipedia_view_history";
+    private static final String PARTITION_PREFIX = PARENT_TABLE + "_p";
+    private static final Pattern PARTITION_NAME = Pattern.compile(Pattern.quote(PARTITION_PREFIX) + "(\\d{4})(\\d{2})");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("uuuuMM", Locale.ROOT);
+
+    // SQLSTATEs of duplicate_table and unique_violation
+    private static final String DUPLICATE_TABLE = "42P07";
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private static final String LIST_PARTITIONS_SQL = "SELECT c.relname AS name " +
+            "FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = CAST('" + PARENT_TABLE + "' AS REGCLASS)";
+
+    public enum RetentionAction {
+        DETACH,
+        DROP
+    }
+
+    private final DatabaseClient databaseClient;
+    private final JobLockManager jobLockManager;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final RetentionAction retentionAction;
+
+    public ViewHistoryPartitionManager(
+            DatabaseClient databaseClient,
+            JobLockManager jobLockManager,
+            @Value("${partitions.view-history.months-ahead:3}") int monthsAhead,
+            @Value("${partitions.view-history.retention-months:0}") int retentionMonths,
+            @Value("${partitions.view-history.retention-action:DETACH}") RetentionAction retentionAction
+    ) {
+        this.databaseClient = databaseClient;
+        this.jobLockManager = jobLockManager;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.retentionAction = retentionAction;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainOnStartup() {
+        runPartitionMaintenance();
+    }
+
+    @Scheduled(cron = "${partitions.view-history.cron:0 15 0 * * *}", zone = "UTC")
+    public void runPartitionMaintenance() {
+        jobLockManager.runExclusive("view-history-partitions", jobLease -> maintainPartitions())
+                .subscribe(null, error -> log.error("Failed to maintain view history partitions", error));
+    }
+
+    /**
+     * Creates any missing partitions from the current month through {@code months-ahead} months out, then applies
+     * retention. A retention of zero months keeps every partition.
+     */
+    public Mono<Void> maintainPartitions() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+
+        return ensurePartitions(current, current.plusMonths(monthsAhead))
+                .then(retentionMonths > 0
+                        ? expirePartitionsBefore(current.minusMonths(retentionMonths - 1L))
+                        : Mono.empty());
+    }
+
+    /**
+     * Makes sure a partition exists for every month in {@code [from, to]}, e.g. before writing history for past
+     * dates.
+     */
+    public Mono<Void> ensurePartitions(Instant from, Instant to) {
+        return ensurePartitions(YearMonth.from(from.atZone(ZoneOffset.UTC)), YearMonth.from(to.atZone(ZoneOffset.UTC)));
+    }
+
+    private Mono<Void> ensurePartitions(YearMonth first, YearMonth last) {
+        return Flux.<YearMonth, YearMonth>generate(() -> first, (month, sink) -> {
+                    if (month.isAfter(last)) {
+                        sink.complete();
+                    } else {
+                        sink.next(month);
+                    }
+                    return month.plusMonths(1);
+                })
+                .concatMap(this::createPartition)
+                .then();
+    }
+
+    private Mono<Void> createPartition(YearMonth month) {
+        // DDL can't take bind parameters; every interpolated value is derived from the YearMonth
+        String sql = String.format(
+                "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                partitionName(month),
+                PARENT_TABLE,
+                month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant(),
+                month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant()
+        );
+
+        return databaseClient.sql(sql)
+                .then()
+                // Another instance may have created it concurrently; IF NOT EXISTS doesn't cover that race. Anything
+                // else fails the run, since without a default partition the month's inserts would fail later.
+                .onErrorResume(ViewHistoryPartitionManager::isConcurrentlyCreated, error -> {
+                    log.info("Partition {} was created concurrently", partitionName(month));
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Whether the error is what losing a concurrent {@code CREATE TABLE IF NOT EXISTS} looks like: the table already
+     * exists, or its row type's entry in {@code pg_type} was inserted first.
+     */
+    private static boolean isConcurrentlyCreated(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof R2dbcException r2dbcException) {
+                String sqlState = r2dbcException.getSqlState();
+                return DUPLICATE_TABLE.equals(sqlState)
+                        || (UNIQUE_VIOLATION.equals(sqlState)
+                        && String.valueOf(r2dbcException.getMessage()).contains("pg_type"));
+            }
+        }
+        return false;
+    }
+
+    private Mono<Void> expirePartitionsBefore(YearMonth oldestKept) {
+        return databaseClient.sql(LIST_PARTITIONS_SQL)
+                .map((row, metadata) -> row.get("name", String.class))
+                .all()
+                .filter(name -> {
+                    YearMonth month = parseMonth(name);
+                    return month != null && month.isBefore(oldestKept);
+                })
+                .sort()
+                .concatMap(this::expirePartition)
+                .then();
+    }
+
+    private Mono<Void> expirePartition(String name) {
+        Mono<Void> detach = databaseClient.sql("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + name).then();
+        Mono<Void> expire = retentionAction == RetentionAction.DROP
+                ? detach.then(databaseClient.sql("DROP TABLE " + name).then())
+                : detach;
+
+        return expire.doOnSuccess(ignored -> log.info("Expired partition {} ({})", name, retentionAction));
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + SUFFIX.format(month);
+    }
+
+    private static YearMonth parseMonth(String name) {
+        Matcher matcher = PARTITION_NAME.matcher(name);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+    }
+}
@@ -0,0 +1,247 @@
+package world.erv.topics.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import world.erv.topics.dto.BackfillStatusDto;
+import world.erv.topics.lock.JobLease;
+import world.erv.topics.lock.JobLockManager;
+import world.erv.topics.repository.WikipediaBackfillCheckpointRepository;
+import world.erv.topics.trend.RisingTopicsTracker;
+import world.erv.topics.trend.TrendScoringEngine;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Ingests the featured feed for a range of past dates. Dates are fetched with bounded parallelism and each one is
+ * written, together with its checkpoint, in a single transaction, so a run that is interrupted resumes with the
+ * dates that have no checkpoint yet. Dates the live ingestion has already written are skipped too, since storing
+ * them again would count their views twice. Only one backfill runs at a time.
+ */
+@Service
+@ConditionalOnProperty(name = "features.wikipedia-service.enabled", havingValue = "true")
+public class WikipediaBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(WikipediaBackfillService.class);
+    private static final ZoneId UTC = ZoneId.of("UTC");
+
+    private final WikipediaService wikipediaService;
+    private final WikipediaBackfillCheckpointRepository checkpointRepository;
+    private final ViewHistoryPartitionManager partitionManager;
+    private final TrendingTopicsCache trendingTopicsCache;
+    private final TrendScoringEngine trendScoringEngine;
+    private final RisingTopicsTracker risingTopicsTracker;
+    private final TopicSearchService topicSearchService;
+    private final TransactionalOperator transactionalOperator;
+    private final JobLockManager jobLockManager;
+    private final int concurrency;
+    private final LocalDate startupFrom;
+    private final LocalDate startupTo;
+
+    private final AtomicInteger skippedDays = new AtomicInteger();
+    private final AtomicInteger completedDays = new AtomicInteger();
+    private final AtomicInteger failedDays = new AtomicInteger();
+    private final AtomicLong articles = new AtomicLong();
+    private boolean running = false;
+    private LocalDate from;
+    private LocalDate to;
+    private int totalDays;
+    private Instant startedAt;
+    private Instant finishedAt;
+
+    public WikipediaBackfillService(
+            WikipediaService wikipediaService,
+            WikipediaBackfillCheckpointRepository checkpointRepository,
+            ViewHistoryPartitionManager partitionManager,
+            TrendingTopicsCache trendingTopicsCache,
+            TrendScoringEngine trendScoringEngine,
+            RisingTopicsTracker risingTopicsTracker,
+            TopicSearchService topicSearchService,
+            TransactionalOperator transactionalOperator,
+            JobLockManager jobLockManager,
+            @Value("${wikipedia.backfill.concurrency:4}") int concurrency,
+            @Value("${wikipedia.backfill.from:}") String startupFrom,
+            @Value("${wikipedia.backfill.to:}") String startupTo
+    ) {
+        this.wikipediaService = wikipediaService;
+        this.checkpointRepository = checkpointRepository;
+        this.partitionManager = partitionManager;
+        this.trendingTopicsCache = trendingTopicsCache;
+        this.trendScoringEngine = trendScoringEngine;
+        this.risingTopicsTracker = risingTopicsTracker;
+        this.topicSearchService = topicSearchService;
+        this.transactionalOperator = transactionalOperator;
+        this.jobLockManager = jobLockManager;
+        this.concurrency = concurrency;
+        this.startupFrom = startupFrom.isBlank() ? null : LocalDate.parse(startupFrom);
+        this.startupTo = startupTo.isBlank() ? null : LocalDate.parse(startupTo);
+    }
+
+    /**
+     * Starts a backfill when the application is launched with {@code --wikipedia.backfill.from=yyyy-MM-dd}
+     * (and optionally {@code --wikipedia.backfill.to}, which defaults to yesterday).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (startupFrom == null) {
+            return;
+        }
+
+        LocalDate end = startupTo != null ? startupTo : LocalDate.now(UTC).minusDays(1);
+        if (!start(startupFrom, end)) {
+            log.warn("Startup backfill not started");
+        }
+    }
+
+    /**
+     * Starts backfilling {@code [from, to]} in the background.
+     *
+     * @return false if a backfill is already running
+     */
+    public boolean start(LocalDate from, LocalDate to) {
+        synchronized (this) {
+            if (running) {
+                return false;
+            }
+            running = true;
+            this.from = from;
+            this.to = to;
+            this.totalDays = (int) ChronoUnit.DAYS.between(from, to) + 1;
+            this.startedAt = Instant.now();
+            this.finishedAt = null;
+            skippedDays.set(0);
+            completedDays.set(0);
+            failedDays.set(0);
+            articles.set(0);
+        }
+
+        log.info("Starting featured feed backfill for {} to {} ({} days)", from, to, totalDays);
+        jobLockManager.runExclusive("wikipedia-backfill", jobLease -> backfill(from, to, jobLease)
+                        // Stored history now covers days the in-memory trend state never saw
+                        .then(Mono.defer(trendScoringEngine::reseed))
+                        .then(Mono.defer(risingTopicsTracker::rebuild))
+                        // Backfilled days don't publish fetch events, so their new topics aren't indexed yet
+                        .then(Mono.defer(topicSearchService::reload))
+                        .thenReturn(true))
+                .switchIfEmpty(Mono.fromRunnable(() -> log.warn("Another instance is already backfilling")))
+                .doFinally(signal -> {
+                    BackfillStatusDto status;
+                    synchronized (this) {
+                        running = false;
+                        finishedAt = Instant.now();
+                        status = getStatus();
+                    }
+                    log.info("Featured feed backfill finished: {}", status);
+                })
+                .subscribe(null, error -> log.error("Featured feed backfill failed", error));
+        return true;
+    }
+
+    public synchronized BackfillStatusDto getStatus() {
+        return new BackfillStatusDto(
+                running,
+                from,
+                to,
+                totalDays,
+                skippedDays.get(),
+                completedDays.get(),
+                failedDays.get(),
+                articles.get(),
+                startedAt,
+                finishedAt
+        );
+    }
+
+    private Mono<Void> backfill(LocalDate from, LocalDate to, JobLease jobLease) {
+        return partitionManager.ensurePartitions(toCreatedAt(from), toCreatedAt(to))
+                .then(Mono.zip(
+                        checkpointRepository.findCompletedDates(from, to).collect(Collectors.toSet()),
+                        checkpointRepository.findIngestedDates(from, to).collect(Collectors.toSet())))
+                .flatMapMany(dates -> pendingDates(from, to, dates.getT1(), dates.getT2()))
+                .flatMap(date -> backfillDay(date, jobLease), concurrency)
+                .then();
+    }
+
+    private Flux<LocalDate> pendingDates(
+            LocalDate from,
+            LocalDate to,
+            Set<LocalDate> completed,
+            Set<LocalDate> ingested
+    ) {
+        Set<LocalDate> skipped = new HashSet<>(completed);
+        skipped.addAll(ingested);
+        skippedDays.set(skipped.size());
+        if (!completed.isEmpty()) {
+            log.info("Resuming backfill; {} of {} days already have a checkpoint", completed.size(), totalDays);
+        }
+        ingested.stream()
+                .filter(date -> !completed.contains(date))
+                .sorted()
+                .forEach(date -> log.info("Skipping {}; the live ingestion has already stored it", date));
+
+        return Flux.fromStream(from.datesUntil(to.plusDays(1)))
+                .filter(date -> !skipped.contains(date));
+    }
+
+    /**
+     * Fetches one day's feed and writes its history, rollups and checkpoint atomically. A failed day is logged and
+     * left without a checkpoint so the next run retries it.
+     */
+    private Mono<Void> backfillDay(LocalDate date, JobLease jobLease) {
+        Instant createdAt = toCreatedAt(date);
+
+        return Mono.defer(() -> {
+                    long startNanos = System.nanoTime();
+
+                    return wikipediaService.fetchFeaturedData(date)
+                            .flatMap(dayArticles -> jobLease.checkFence()
+                                    .then(wikipediaService.storeHistoricalFeaturedData(dayArticles, createdAt))
+                                    .flatMap(rows -> checkpointRepository
+                                            .markCompleted(date, rows.intValue(), Instant.now())
+                                            .thenReturn(rows))
+                                    .as(transactionalOperator::transactional))
+                            .doOnNext(rows -> {
+                                trendingTopicsCache.invalidate(date);
+                                articles.addAndGet(rows);
+                                int done = completedDays.incrementAndGet() + skippedDays.get();
+                                double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+                                log.info("Backfilled {}: {} rows in {} ms ({} rows/sec), {}/{} days done",
+                                        date,
+                                        rows,
+                                        Math.round(seconds * 1000),
+                                        seconds > 0 ? Math.round(rows / seconds) : rows,
+                                        done,
+                                        totalDays);
+                            });
+                })
+                .onErrorResume(error -> {
+                    failedDays.incrementAndGet();
+                    log.warn("Failed to backfill {}", date, error);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Backfilled rows are stamped at the start of their day (UTC), the day the live ingestion would have written
+     * them to.
+     */
+    private static Instant toCreatedAt(LocalDate date) {
+        return date.atStartOfDay(UTC).toInstant();
+    }
+}
@@ -0,0 +1,267 @@
+package world.erv.topics.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import world.erv.topics.dto.WikipediaArticleDto;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Incremental parser for the Wikimedia featured feed. Bytes are pushed through a non-blocking Jackson parser as
+ * they arrive and only {@code mostread.articles} is interpreted; every other section is read token by token and
+ * dropped without building a tree. Each article's trend is accumulated from its {@code view_history} while it is
+ * being read.
+ * <p>
+ * An instance holds the state of a single document and is not thread-safe.
+ */
+public final class WikipediaFeaturedParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    // State of the article currently being read
+    private String title;
+    private String url;
+    private long views;
+    private final SlopeAccumulator trend = new SlopeAccumulator();
+    private long pointViews;
+
+    // Totals for the whole document, for metrics
+    private long bytesRead;
+    private long parseNanos;
+
+    public WikipediaFeaturedParser() {
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Parses a response body, emitting articles as soon as their closing brace has been read. Buffers are released
+     * as they are consumed.
+     */
+    public static Flux<WikipediaArticleDto> parse(Flux<DataBuffer> body) {
+        return parse(body, featuredParser -> {
+        });
+    }
+
+    /**
+     * Like {@link #parse(Flux)}, handing the finished parser to {@code onComplete} once the whole document has been
+     * read, e.g. to record {@link #getBytesRead()} and {@link #getParseNanos()}.
+     */
+    public static Flux<WikipediaArticleDto> parse(
+            Flux<DataBuffer> body,
+            Consumer<WikipediaFeaturedParser> onComplete
+    ) {
+        return Flux.defer(() -> {
+            WikipediaFeaturedParser featuredParser = new WikipediaFeaturedParser();
+
+            return body
+                    .concatMapIterable(buffer -> {
+                        try {
+                            return featuredParser.feed(buffer);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .concatWith(Mono.fromCallable(featuredParser::endOfInput).flatMapIterable(articles -> articles))
+                    .doOnComplete(() -> onComplete.accept(featuredParser))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    /**
+     * Parses a complete, already buffered document.
+     */
+    public static List<WikipediaArticleDto> parse(byte[] json) {
+        WikipediaFeaturedParser featuredParser = new WikipediaFeaturedParser();
+        List<WikipediaArticleDto> articles = new ArrayList<>(featuredParser.feed(json, 0, json.length));
+        articles.addAll(featuredParser.endOfInput());
+        return articles;
+    }
+
+    public List<WikipediaArticleDto> feed(DataBuffer buffer) {
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        return feed(bytes, 0, bytes.length);
+    }
+
+    public List<WikipediaArticleDto> feed(byte[] bytes, int offset, int length) {
+        long startNanos = System.nanoTime();
+        try {
+            feeder.feedInput(bytes, offset, offset + length);
+            bytesRead += length;
+            return drain();
+        } catch (IOException e) {
+            throw new DecodingException("Malformed Wikipedia featured feed", e);
+        } finally {
+            parseNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    public List<WikipediaArticleDto> endOfInput() {
+        long startNanos = System.nanoTime();
+        feeder.endOfInput();
+        try {
+            List<WikipediaArticleDto> articles = drain();
+            parser.close();
+            return articles;
+        } catch (IOException e) {
+            throw new DecodingException("Malformed Wikipedia featured feed", e);
+        } finally {
+            parseNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Time spent inside the parser, excluding time spent waiting for input.
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    private List<WikipediaArticleDto> drain() throws IOException {
+        List<WikipediaArticleDto> articles = List.of();
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            JsonStreamContext context = parser.getParsingContext();
+            switch (token) {
+                case START_OBJECT -> {
+                    if (isArticle(context)) {
+                        title = "";
+                        url = "";
+                        views = 0;
+                        trend.reset();
+                    } else if (isViewHistoryPoint(context)) {
+                        pointViews = 0;
+                    }
+                }
+                case END_OBJECT -> {
+                    // The context has already been popped back to the enclosing array
+                    if (isArticles(context)) {
+                        if (articles.isEmpty()) {
+                            articles = new ArrayList<>();
+                        }
+                        articles.add(new WikipediaArticleDto(title, url, views, trend.slope()));
+                    } else if (isViewHistory(context)) {
+                        trend.add(pointViews);
+                    }
+                }
+                case VALUE_STRING -> {
+                    if (isArticle(context) && "title".equals(context.getCurrentName())) {
+                        title = parser.getText();
+                    } else if (isDesktopPage(context)) {
+                        url = parser.getText();
+                    }
+                }
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> {
+                    if (!"views".equals(context.getCurrentName())) {
+                        break;
+                    }
+                    if (isArticle(context)) {
+                        views = parser.getValueAsLong();
+                    } else if (isViewHistoryPoint(context)) {
+                        pointViews = parser.getValueAsLong();
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return articles;
+    }
+
+    // root.mostread.articles
+    private static boolean isArticles(JsonStreamContext context) {
+        if (context == null || !context.inArray()) {
+            return false;
+        }
+        JsonStreamContext mostRead = context.getParent();
+        if (mostRead == null || !"articles".equals(mostRead.getCurrentName())) {
+            return false;
+        }
+        JsonStreamContext feed = mostRead.getParent();
+        return feed != null && "mostread".equals(feed.getCurrentName()) && feed.getParent() != null
+                && feed.getParent().inRoot();
+    }
+
+    // root.mostread.articles[i]
+    private static boolean isArticle(JsonStreamContext context) {
+        return context != null && context.inObject() && isArticles(context.getParent());
+    }
+
+    // root.mostread.articles[i].view_history
+    private static boolean isViewHistory(JsonStreamContext context) {
+        return context != null && context.inArray() && "view_history".equals(context.getParent().getCurrentName())
+                && isArticle(context.getParent());
+    }
+
+    // root.mostread.articles[i].view_history[j]
+    private static boolean isViewHistoryPoint(JsonStreamContext context) {
+        return context != null && context.inObject() && isViewHistory(context.getParent());
+    }
+
+    // root.mostread.articles[i].content_urls.desktop.page
+    private static boolean isDesktopPage(JsonStreamContext context) {
+        if (context == null || !context.inObject() || !"page".equals(context.getCurrentName())) {
+            return false;
+        }
+        JsonStreamContext contentUrls = context.getParent();
+        if (contentUrls == null || !"desktop".equals(contentUrls.getCurrentName())) {
+            return false;
+        }
+        JsonStreamContext article = contentUrls.getParent();
+        return article != null && "content_urls".equals(article.getCurrentName()) && isArticle(article);
+    }
+
+    /**
+     * Least-squares slope of views over the 1-based sample index, accumulated one sample at a time.
+     */
+    static final class SlopeAccumulator {
+
+        private long n;
+        private long sumX;
+        private long sumY;
+        private long sumXY;
+        private long sumX2;
+
+        void reset() {
+            n = sumX = sumY = sumXY = sumX2 = 0;
+        }
+
+        void add(long y) {
+            long x = ++n;
+            sumX += x;
+            sumY += y;
+            sumXY += x * y;
+            sumX2 += x * x;
+        }
+
+        double slope() {
+            double numerator = (double) (n * sumXY - sumX * sumY);
+            double denominator = (double) (n * sumX2 - sumX * sumX);
+
+            return denominator == 0 ? 0.0 : numerator / denominator;
+        }
+    }
+}
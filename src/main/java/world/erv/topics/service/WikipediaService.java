@@ -1,57 +1,124 @@
 package world.erv.topics.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.observability.micrometer.Micrometer;
 import reactor.core.publisher.Mono;
+import world.erv.topics.dto.RisingTopicDto;
+import world.erv.topics.dto.TopicDto;
 import world.erv.topics.dto.WikipediaArticleDto;
+import world.erv.topics.event.EventBus;
 import world.erv.topics.event.WikipediaFeaturedFetchEvent;
+import world.erv.topics.lock.JobLease;
+import world.erv.topics.lock.JobLockManager;
+import world.erv.topics.model.RisingWindow;
 import world.erv.topics.model.Topic;
 import world.erv.topics.model.WikipediaViewHistory;
+import world.erv.topics.repository.FeedFetchStateRepository;
 import world.erv.topics.repository.TopicRepository;
 import world.erv.topics.repository.WikipediaViewHistoryRepository;
+import world.erv.topics.repository.WikipediaViewHistoryWriter;
+import world.erv.topics.repository.WikipediaViewRollupRepository;
+import world.erv.topics.trend.RisingTopicsTracker;
+import world.erv.topics.trend.TrendScoringEngine;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @ConditionalOnProperty(name = "features.wikipedia-service.enabled", havingValue = "true")
 public class WikipediaService {
 
     private static final Logger log = LoggerFactory.getLogger(WikipediaService.class);
+    private static final String FEATURED_FEED = "wikipedia-featured";
+
+    private record FeaturedPayload(
+            String uri,
+            List<WikipediaArticleDto> articles,
+            String etag,
+            String lastModified,
+            String contentHash
+    ) {
+
+        FeedFetchStateRepository.Entry toState(Instant fetchedAt) {
+            return new FeedFetchStateRepository.Entry(FEATURED_FEED, uri, etag, lastModified, contentHash, fetchedAt);
+        }
+    }
+
     private final TransactionalOperator transactionalOperator;
-    private final ApplicationEventPublisher eventPublisher;
+    private final EventBus eventBus;
     private final WebClient webClient;
     private final TopicRepository topicRepository;
     private final WikipediaViewHistoryRepository wikipediaViewHistoryRepository;
+    private final WikipediaViewHistoryWriter wikipediaViewHistoryWriter;
+    private final WikipediaViewRollupRepository wikipediaViewRollupRepository;
+    private final FeedFetchStateRepository feedFetchStateRepository;
+    private final TrendScoringEngine trendScoringEngine;
+    private final RisingTopicsTracker risingTopicsTracker;
+    private final JobLockManager jobLockManager;
+    private final ObservationRegistry observationRegistry;
+    private final DistributionSummary payloadSize;
+    private final Timer parseTimer;
 
     public WikipediaService(
             TransactionalOperator transactionalOperator,
-            ApplicationEventPublisher eventPublisher,
+            EventBus eventBus,
             WebClient wikipediaWebClient,
             TopicRepository topicRepository,
-            WikipediaViewHistoryRepository wikipediaViewHistoryRepository
+            WikipediaViewHistoryRepository wikipediaViewHistoryRepository,
+            WikipediaViewHistoryWriter wikipediaViewHistoryWriter,
+            WikipediaViewRollupRepository wikipediaViewRollupRepository,
+            FeedFetchStateRepository feedFetchStateRepository,
+            TrendScoringEngine trendScoringEngine,
+            RisingTopicsTracker risingTopicsTracker,
+            JobLockManager jobLockManager,
+            ObservationRegistry observationRegistry,
+            MeterRegistry meterRegistry
     ) {
         this.transactionalOperator = transactionalOperator;
-        this.eventPublisher = eventPublisher;
+        this.eventBus = eventBus;
         this.webClient = wikipediaWebClient;
         this.topicRepository = topicRepository;
         this.wikipediaViewHistoryRepository = wikipediaViewHistoryRepository;
+        this.wikipediaViewHistoryWriter = wikipediaViewHistoryWriter;
+        this.wikipediaViewRollupRepository = wikipediaViewRollupRepository;
+        this.feedFetchStateRepository = feedFetchStateRepository;
+        this.trendScoringEngine = trendScoringEngine;
+        this.risingTopicsTracker = risingTopicsTracker;
+        this.jobLockManager = jobLockManager;
+        this.observationRegistry = observationRegistry;
+        this.payloadSize = DistributionSummary.builder("wikipedia.featured.payload.size")
+                .description("Size of the featured feed response body")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.parseTimer = Timer.builder("wikipedia.featured.parse")
+                .description("Time spent parsing the featured feed, excluding time waiting for the network")
+                .register(meterRegistry);
     }
 
     @PostConstruct
@@ -59,13 +126,40 @@ public class WikipediaService {
         log.info("Wikipedia service enabled");
     }
 
-    public Flux<WikipediaViewHistory> getMostViewedArticlesInInstantRange(
-            int maxArticles,
+    public Flux<TopicDto> getMostViewedTopicsInInstantRange(
+            int maxTopics,
             Instant start,
             Instant end
     ) {
-        return wikipediaViewHistoryRepository.findMostViewedArticlesFromDate(start, end)
-                .take(maxArticles);
+        return wikipediaViewHistoryRepository.findMostViewedTopicsFromDate(start, end, maxTopics);
+    }
+
+    /**
+     * Returns the {@code k} topics whose views grew the most over the window ending now, fastest growing first.
+     */
+    public Flux<RisingTopicDto> getRisingTopics(RisingWindow window, int k) {
+        List<RisingTopicsTracker.Riser> risers = risingTopicsTracker.topK(window, k, Instant.now());
+        if (risers.isEmpty()) {
+            return Flux.empty();
+        }
+
+        return topicRepository.findAllById(risers.stream().map(RisingTopicsTracker.Riser::topicId).toList())
+                .collectMap(Topic::getId)
+                .flatMapIterable(topicsById -> risers.stream()
+                        .filter(riser -> topicsById.containsKey(riser.topicId()))
+                        .map(riser -> {
+                            Topic topic = topicsById.get(riser.topicId());
+                            return new RisingTopicDto(
+                                    topic.getId(),
+                                    topic.getTitle(),
+                                    topic.getWikipediaUrl(),
+                                    riser.views(),
+                                    riser.baselineViews(),
+                                    riser.growth(),
+                                    riser.growthRatio()
+                            );
+                        })
+                        .toList());
     }
 
     @Scheduled(
@@ -74,46 +168,20 @@ public class WikipediaService {
     public Mono<Void> runWikipediaService() {
         log.info("Running scheduled Wikipedia service...");
 
-        return shouldUpdateLatestFeaturedData()
-                .flatMap(shouldUpdate -> {
-                    if (shouldUpdate) {
-                        return updateLatestFeaturedData();
-                    } else {
-                        log.info("Skipping featured data update");
+        // Root of the run's trace; every stage below, and the event consumers, are children of it. Only the
+        // instance holding the job lock ingests, so the freshness check below can't race another replica's run.
+        return jobLockManager.runExclusive("wikipedia-ingestion", jobLease -> shouldUpdateLatestFeaturedData()
+                        .flatMap(shouldUpdate -> {
+                            if (shouldUpdate) {
+                                return updateLatestFeaturedData(jobLease);
+                            } else {
+                                log.info("Skipping featured data update");
 
-                        return Mono.empty();
-                    }
-                });
-    }
-
-    private static double getArticleTrendValue(JsonNode view_history) {
-        double trend;
-        int n = view_history.size();
-        long sum_x = 0;
-        long sum_y = 0;
-        long sum_xy = 0;
-        long sum_x_2 = 0;
-
-        for (int i = 0; i < n; i++) {
-            long current_x = i + 1;
-            long current_y = view_history.get(i).path("views").asLong();
-
-            sum_x += current_x;
-            sum_y += current_y;
-            sum_xy += current_x * current_y;
-            sum_x_2 += current_x * current_x;
-        }
-
-        double numerator = (double) (n * sum_xy - sum_x * sum_y);
-        double denominator = (double) (n * sum_x_2 - sum_x * sum_x);
-
-        if (denominator == 0) {
-            trend = 0.0;
-        } else {
-            trend = numerator / denominator;
-        }
-
-        return trend;
+                                return Mono.empty();
+                            }
+                        }))
+                .name("wikipedia.ingestion")
+                .tap(Micrometer.observation(observationRegistry));
     }
 
     private Mono<Boolean> shouldUpdateLatestFeaturedData() {
@@ -126,92 +194,211 @@ public class WikipediaService {
                 .defaultIfEmpty(true);
     }
 
-    private Mono<Void> updateLatestFeaturedData() {
-        Mono<List<WikipediaArticleDto>> fetchArticlesMono = fetchLatestFeaturedData()
+    private Mono<Void> updateLatestFeaturedData(JobLease jobLease) {
+        // Shared by the history rows and the event so consumers can tell which day the run wrote to
+        Instant ingestedAt = Instant.now();
+        // Completes empty when the feed hasn't changed since the last stored run, skipping everything below
+        Mono<FeaturedPayload> fetchPayloadMono = fetchChangedFeaturedPayload(LocalDate.now(ZoneId.of("UTC")), jobLease)
                 .doOnError(error -> log.error("Failed to fetch featured data", error));
 
-        return fetchArticlesMono
-                .flatMap(articles -> {
+        return fetchPayloadMono
+                .flatMap(payload -> {
+                    List<WikipediaArticleDto> articles = payload.articles();
 
-                    Mono<Map<String, Topic>> topicMapMono = Flux.fromIterable(articles)
-                            .flatMap(this::getOrCreateTopic)
-                            .collectMap(Topic::getTitle);
+                    Mono<Map<String, Topic>> topicMapMono = resolveTopics(articles);
 
                     List<String> titles = articles.stream()
                             .map(WikipediaArticleDto::title)
                             .toList();
 
-                    return topicMapMono.flatMap(topicMap -> {
-
-                        List<WikipediaViewHistory> histories = articles.stream()
-                                .map(article -> {
-                                    Topic topic = topicMap.get(article.title());
-                                    WikipediaViewHistory history = new WikipediaViewHistory();
-                                    history.setTopicId(topic.getId());
-                                    history.setViews(article.views());
-                                    history.setViewTrend(article.viewTrend());
-                                    return history;
-                                })
-                                .toList();
-
-                        return wikipediaViewHistoryRepository
-                                .saveAll(histories)
-                                .collectList();
-                    })
-                    .thenReturn(titles);
+                    return jobLease.checkFence()
+                            .then(topicMapMono)
+                            .flatMap(topicMap -> trendScoringEngine.awaitSeeded()
+                                    .then(Mono.fromCallable(() -> buildHistories(articles, topicMap))))
+                            .flatMap(histories -> wikipediaViewHistoryWriter.insertAll(histories, ingestedAt)
+                                    .then(wikipediaViewRollupRepository.accumulate(histories, ingestedAt))
+                                    .then(Mono.fromRunnable(() -> risingTopicsTracker.record(histories, ingestedAt)))
+                                    .name("wikipedia.history.insert")
+                                    .tap(Micrometer.observation(observationRegistry)))
+                            .then(feedFetchStateRepository.save(payload.toState(ingestedAt)))
+                            // Stored with the history so consumers hear about every committed run, even
+                            // across a crash; delivered once the transaction commits
+                            .then(eventBus.publish(new WikipediaFeaturedFetchEvent(ingestedAt, titles)));
                 })
                 .as(transactionalOperator::transactional)
-                .flatMap(titles -> Mono.fromRunnable(() -> {
-                    WikipediaFeaturedFetchEvent event = new WikipediaFeaturedFetchEvent(
-                            Instant.now(),
-                            titles
-                    );
-                    log.info("[EVENT: Publishing {}]", event);
-                    eventPublisher.publishEvent(event);
-                }));
+                .name("wikipedia.ingestion.transaction")
+                .tap(Micrometer.observation(observationRegistry))
+                // Observations of a rolled-back run were already recorded in memory
+                .onErrorResume(error -> Mono.when(trendScoringEngine.reseed(), risingTopicsTracker.rebuild())
+                        .onErrorComplete()
+                        .then(Mono.error(error)));
     }
 
-    private Mono<Topic> getOrCreateTopic(WikipediaArticleDto article) {
-        return topicRepository.findByTitle(article.title())
-                .switchIfEmpty(topicRepository.save(new Topic(
-                        article.title(),
-                        article.url()
-                )));
+    private List<WikipediaViewHistory> buildHistories(
+            List<WikipediaArticleDto> articles,
+            Map<String, Topic> topicMap
+    ) {
+        return articles.stream()
+                .map(article -> {
+                    Topic topic = topicMap.get(article.title());
+                    WikipediaViewHistory history = new WikipediaViewHistory();
+                    history.setTopicId(topic.getId());
+                    history.setViews(article.views());
+                    history.setViewTrend(article.viewTrend());
+                    history.setTrendScores(trendScoringEngine.observe(topic.getId(), article.views()));
+                    return history;
+                })
+                .toList();
     }
 
-    private Mono<List<WikipediaArticleDto>> fetchLatestFeaturedData() {
-        LocalDate today = LocalDate.now(ZoneId.of("UTC"));
-        String year = today.format(DateTimeFormatter.ofPattern("yyyy"));
-        String month = today.format(DateTimeFormatter.ofPattern("MM"));
-        String day = today.format(DateTimeFormatter.ofPattern("dd"));
+    /**
+     * Stores a past day's articles as history stamped {@code createdAt}, resolving their topics and updating the
+     * rollups. Trend scores aren't computed because the live scoring state only moves forward in time. Runs inside
+     * the caller's transaction when there is one.
+     *
+     * @return the number of history rows written
+     */
+    public Mono<Long> storeHistoricalFeaturedData(List<WikipediaArticleDto> articles, Instant createdAt) {
+        if (articles.isEmpty()) {
+            return Mono.just(0L);
+        }
 
-        String wikipediaFeaturedUrl = "/en/featured";
-        String uri = String.format("%s/%s/%s/%s", wikipediaFeaturedUrl, year, month, day);
-        return webClient.get()
-                .uri(uri)
-                .retrieve()
-                .bodyToMono(JsonNode.class)
-                .map(this::parseWikipediaFeaturedResponse);
+        return resolveTopics(articles)
+                .map(topicMap -> articles.stream()
+                        .map(article -> {
+                            WikipediaViewHistory history = new WikipediaViewHistory();
+                            history.setTopicId(topicMap.get(article.title()).getId());
+                            history.setViews(article.views());
+                            history.setViewTrend(article.viewTrend());
+                            return history;
+                        })
+                        .toList())
+                .flatMap(histories -> wikipediaViewHistoryWriter.insertAll(histories, createdAt)
+                        .flatMap(rows -> wikipediaViewRollupRepository.accumulate(histories, createdAt)
+                                .thenReturn(rows)));
+    }
+
+    /**
+     * Resolves (creating where needed) the topic for every article in a single upsert round trip.
+     */
+    private Mono<Map<String, Topic>> resolveTopics(List<WikipediaArticleDto> articles) {
+        String[] titles = new String[articles.size()];
+        String[] urls = new String[articles.size()];
+        for (int i = 0; i < articles.size(); i++) {
+            titles[i] = articles.get(i).title();
+            urls[i] = articles.get(i).url();
+        }
+
+        return topicRepository.upsertAllByTitle(titles, urls)
+                .collectMap(Topic::getTitle)
+                .name("wikipedia.topics.resolve")
+                .tap(Micrometer.observation(observationRegistry));
+    }
+
+    /**
+     * Fetches the featured feed for the given day unless it is unchanged since the last stored run: the request
+     * carries the stored validators, and a 200 whose most-read articles hash to the stored content hash counts as
+     * unchanged too. The body is streamed through the parser rather than buffered, and only the articles are kept.
+     * An unchanged 200 is still parsed: the parser only interprets the most-read section and skips the rest token by
+     * token, which costs about as much as locating that section's bytes to hash them would.
+     */
+    private Mono<FeaturedPayload> fetchChangedFeaturedPayload(LocalDate date, JobLease jobLease) {
+        String uri = featuredUri(date);
+
+        return feedFetchStateRepository.find(FEATURED_FEED)
+                // Validators only apply to the same day's document
+                .filter(state -> state.url().equals(uri))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(previous -> webClient.get()
+                        .uri(uri)
+                        .headers(headers -> previous.ifPresent(state -> {
+                            if (state.etag() != null) {
+                                headers.setIfNoneMatch(state.etag());
+                            }
+                            if (state.lastModified() != null) {
+                                headers.set(HttpHeaders.IF_MODIFIED_SINCE, state.lastModified());
+                            }
+                        }))
+                        .exchangeToMono(response -> {
+                            if (response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                                log.info("Featured feed not modified");
+                                return response.releaseBody().then(Mono.<FeaturedPayload>empty());
+                            }
+                            if (!response.statusCode().is2xxSuccessful()) {
+                                return response.createError();
+                            }
+
+                            HttpHeaders responseHeaders = response.headers().asHttpHeaders();
+                            return response.bodyToFlux(DataBuffer.class)
+                                    .transform(body -> WikipediaFeaturedParser.parse(body, featuredParser -> {
+                                        payloadSize.record(featuredParser.getBytesRead());
+                                        parseTimer.record(featuredParser.getParseNanos(), TimeUnit.NANOSECONDS);
+                                    }))
+                                    .collectList()
+                                    .map(articles -> new FeaturedPayload(
+                                            uri,
+                                            articles,
+                                            responseHeaders.getETag(),
+                                            responseHeaders.getFirst(HttpHeaders.LAST_MODIFIED),
+                                            contentHash(articles)
+                                    ));
+                        })
+                        .flatMap(payload -> {
+                            if (previous.isEmpty() || !previous.get().contentHash().equals(payload.contentHash())) {
+                                return Mono.just(payload);
+                            }
+
+                            log.info("Featured feed content unchanged");
+                            // Keep the fresher validators so the next request can get a 304
+                            return jobLease.checkFence()
+                                    .then(feedFetchStateRepository.save(payload.toState(Instant.now())))
+                                    .then(Mono.empty());
+                        }))
+                .name("wikipedia.featured.fetch")
+                .tap(Micrometer.observation(observationRegistry));
     }
 
-    private List<WikipediaArticleDto> parseWikipediaFeaturedResponse(JsonNode response) {
-        List<WikipediaArticleDto> featuredArticles = new ArrayList<>();
-        JsonNode articleNodes = response.path("mostread").path("articles");
-        if (articleNodes.isArray()) {
-            for (JsonNode articleNode : articleNodes) {
-                WikipediaArticleDto article = new WikipediaArticleDto(
-                        articleNode.path("title").asText(),
-                        articleNode.path("content_urls")
-                                .path("desktop")
-                                .path("page")
-                                .asText(),
-                        articleNode.path("views").asLong(),
-                        getArticleTrendValue(articleNode.path("view_history"))
-                );
-                featuredArticles.add(article);
-            }
+    // Covers only what an ingestion run stores, so edits elsewhere in the feed don't count as a change
+    private static String contentHash(List<WikipediaArticleDto> articles) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (WikipediaArticleDto article : articles) {
+            String row = article.title() + "\u0000" + article.url() + "\u0000" + article.views() + "\u0000"
+                    + article.viewTrend() + "\n";
+            digest.update(row.getBytes(StandardCharsets.UTF_8));
         }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String featuredUri(LocalDate date) {
+        String year = date.format(DateTimeFormatter.ofPattern("yyyy"));
+        String month = date.format(DateTimeFormatter.ofPattern("MM"));
+        String day = date.format(DateTimeFormatter.ofPattern("dd"));
 
-        return featuredArticles;
+        String wikipediaFeaturedUrl = "/en/featured";
+        return String.format("%s/%s/%s/%s", wikipediaFeaturedUrl, year, month, day);
+    }
+
+    /**
+     * Fetches and parses the featured feed published for the given day, streaming the body through the parser.
+     */
+    public Mono<List<WikipediaArticleDto>> fetchFeaturedData(LocalDate date) {
+        return webClient.get()
+                .uri(featuredUri(date))
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .transform(body -> WikipediaFeaturedParser.parse(body, featuredParser -> {
+                    payloadSize.record(featuredParser.getBytesRead());
+                    parseTimer.record(featuredParser.getParseNanos(), TimeUnit.NANOSECONDS);
+                }))
+                .collectList()
+                .name("wikipedia.featured.fetch")
+                .tap(Micrometer.observation(observationRegistry));
     }
 }
@@ -0,0 +1,42 @@
+package world.erv.topics.trend;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exponentially weighted moving average of the second difference of views, i.e. how fast the velocity changes.
+ */
+@Component
+@Order(3)
+public class AccelerationTrendScorer implements TrendScorer {
+
+    private final double alpha;
+
+    public AccelerationTrendScorer(@Value("${trend.ewma-alpha:0.3}") double alpha) {
+        this.alpha = alpha;
+    }
+
+    @Override
+    public String name() {
+        return "acceleration";
+    }
+
+    @Override
+    public int stateSize() {
+        return 1;
+    }
+
+    @Override
+    public double score(ViewRingBuffer history, double[] state, int offset) {
+        if (history.size() < 3) {
+            return 0.0;
+        }
+
+        double acceleration = (double) history.fromLatest(0) - 2.0 * history.fromLatest(1) + history.fromLatest(2);
+        double ewma = history.size() == 3 ? acceleration : alpha * acceleration + (1 - alpha) * state[offset];
+        state[offset] = ewma;
+
+        return ewma;
+    }
+}
@@ -0,0 +1,43 @@
+package world.erv.topics.trend;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exponentially weighted moving average of the change in views between consecutive observations.
+ */
+@Component
+@Order(2)
+public class EwmaVelocityTrendScorer implements TrendScorer {
+
+    private final double alpha;
+
+    public EwmaVelocityTrendScorer(@Value("${trend.ewma-alpha:0.3}") double alpha) {
+        this.alpha = alpha;
+    }
+
+    @Override
+    public String name() {
+        return "ewma_velocity";
+    }
+
+    @Override
+    public int stateSize() {
+        return 1;
+    }
+
+    @Override
+    public double score(ViewRingBuffer history, double[] state, int offset) {
+        if (history.size() < 2) {
+            return 0.0;
+        }
+
+        double velocity = history.fromLatest(0) - history.fromLatest(1);
+        // The first velocity seeds the average instead of being blended with zero
+        double ewma = history.size() == 2 ? velocity : alpha * velocity + (1 - alpha) * state[offset];
+        state[offset] = ewma;
+
+        return ewma;
+    }
+}
@@ -0,0 +1,312 @@
+package world.erv.topics.trend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import world.erv.topics.model.RisingWindow;
+import world.erv.topics.model.WikipediaViewHistory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps every topic's timestamped view observations from the last {@link RisingWindow#maxLength()} in memory and
+ * ranks topics by how much their views grew across a sliding window. Rebuilt from {@code wikipedia_view_history} at
+ * startup, so a request never has to aggregate stored history. The instance that runs an ingestion records it
+ * directly; every instance also reads the rows stored since its latest observation every
+ * {@code rising.refresh-interval}, which picks up runs made elsewhere.
+ */
+@Component
+@ConditionalOnProperty(name = "features.wikipedia-service.enabled", havingValue = "true")
+public class RisingTopicsTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(RisingTopicsTracker.class);
+
+    // Index-only scan of idx_wikipedia_view_history_created_views; oldest first so each topic's ring fills in order.
+    // Rows already recorded are skipped, so reading from the latest observation onwards is safe.
+    private static final String HISTORY_SINCE_SQL = "SELECT topic_id, views, created_at " +
+            "FROM wikipedia_view_history " +
+            "WHERE created_at >= :since " +
+            "ORDER BY created_at";
+    // How far before the longest window a rebuild reads, so that window has a baseline even after a skipped run
+    private static final Duration BASELINE_SLACK = Duration.ofDays(1);
+
+    /**
+     * A topic's growth over a window: {@code views} is its latest observation and {@code baselineViews} the last one
+     * at or before the window's start, or 0 if the topic first appeared within the window.
+     */
+    public record Riser(long topicId, long views, long baselineViews, long growth, double growthRatio) {
+    }
+
+    private static final Comparator<Riser> RISER_ORDER = Comparator.comparingDouble(Riser::growthRatio)
+            .thenComparingLong(Riser::growth)
+            .thenComparing(Comparator.comparingLong(Riser::topicId).reversed());
+
+    /**
+     * Ring of a topic's observations, oldest first. Observations older than the retention are dropped as new ones
+     * arrive, except for the newest of them, which is still the baseline of the longest window.
+     */
+    private static final class Observations {
+        final long[] times;
+        final long[] views;
+        int head;
+        int size;
+
+        Observations(int capacity) {
+            this.times = new long[capacity];
+            this.views = new long[capacity];
+        }
+
+        long time(int i) {
+            return times[(head + i) % times.length];
+        }
+
+        long views(int i) {
+            return views[(head + i) % views.length];
+        }
+
+        long latestTime() {
+            return time(size - 1);
+        }
+
+        void add(long time, long value, long cutoff) {
+            // A rebuild and a live run can both deliver the same row
+            if (size > 0 && time <= latestTime()) {
+                return;
+            }
+            while (size > 1 && time(1) <= cutoff) {
+                head = (head + 1) % times.length;
+                size--;
+            }
+            if (size == times.length) {
+                head = (head + 1) % times.length;
+                size--;
+            }
+            int tail = (head + size) % times.length;
+            times[tail] = time;
+            views[tail] = value;
+            size++;
+        }
+
+        /**
+         * Index of the last observation at or before {@code time}, or -1 if there is none.
+         */
+        int lastAtOrBefore(long time) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (time(i) <= time) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private record Observation(long topicId, long views, long time) {
+    }
+
+    private final DatabaseClient databaseClient;
+    private final int capacity;
+    private final long minBaselineViews;
+    private final Duration retention;
+    private Map<Long, Observations> topics = new HashMap<>();
+    // Observations recorded while a rebuild is reading history, replayed onto the rebuilt state
+    private List<Observation> pending = null;
+    // Time of the latest observation recorded or read, or null until the first rebuild completes
+    private Instant lastSeen = null;
+
+    public RisingTopicsTracker(
+            DatabaseClient databaseClient,
+            @Value("${rising.history-capacity:256}") int capacity,
+            @Value("${rising.min-baseline-views:1000}") long minBaselineViews
+    ) {
+        this.databaseClient = databaseClient;
+        this.capacity = capacity;
+        this.minBaselineViews = Math.max(1, minBaselineViews);
+        this.retention = RisingWindow.maxLength();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild().subscribe(null, error -> log.error("Failed to rebuild rising topic counters", error));
+    }
+
+    /**
+     * Records the observations of an ingestion run taken at {@code createdAt}.
+     */
+    public synchronized void record(List<WikipediaViewHistory> histories, Instant createdAt) {
+        long time = createdAt.toEpochMilli();
+        long cutoff = time - retention.toMillis();
+        for (WikipediaViewHistory history : histories) {
+            long views = history.getViews() == null ? 0 : history.getViews();
+            add(topics, history.getTopicId(), views, time, cutoff);
+            if (pending != null) {
+                pending.add(new Observation(history.getTopicId(), views, time));
+            }
+        }
+        topics.values().removeIf(observations -> observations.latestTime() <= cutoff);
+        if (lastSeen != null && createdAt.isAfter(lastSeen)) {
+            lastSeen = createdAt;
+        }
+    }
+
+    /**
+     * Records the history stored since the latest observation, wherever it was ingested. Does nothing until the
+     * first rebuild completes.
+     */
+    @Scheduled(
+            initialDelayString = "${rising.refresh-interval:PT1M}",
+            fixedDelayString = "${rising.refresh-interval:PT1M}"
+    )
+    public Mono<Void> refresh() {
+        return Mono.defer(() -> {
+            Instant since;
+            synchronized (this) {
+                since = lastSeen;
+            }
+            if (since == null) {
+                return Mono.empty();
+            }
+
+            return databaseClient.sql(HISTORY_SINCE_SQL)
+                    .bind("since", since)
+                    .map(row -> {
+                        Long views = row.get("views", Long.class);
+                        return new Observation(row.get("topic_id", Long.class), views == null ? 0 : views,
+                                row.get("created_at", Instant.class).toEpochMilli());
+                    })
+                    .all()
+                    .collectList()
+                    .doOnNext(this::recordAll)
+                    .onErrorResume(error -> {
+                        log.error("Failed to refresh rising topic counters", error);
+                        return Mono.empty();
+                    })
+                    .then();
+        });
+    }
+
+    private synchronized void recordAll(List<Observation> observations) {
+        if (observations.isEmpty()) {
+            return;
+        }
+        long latest = observations.get(observations.size() - 1).time();
+        long cutoff = Instant.now().minus(retention).toEpochMilli();
+        for (Observation observation : observations) {
+            add(topics, observation.topicId(), observation.views(), observation.time(), cutoff);
+            if (pending != null) {
+                pending.add(observation);
+            }
+        }
+        topics.values().removeIf(ring -> ring.latestTime() <= cutoff);
+        if (lastSeen != null && latest > lastSeen.toEpochMilli()) {
+            lastSeen = Instant.ofEpochMilli(latest);
+        }
+    }
+
+    /**
+     * Drops all in-memory state and rebuilds it from stored history. Observations recorded meanwhile are kept.
+     */
+    public Mono<Void> rebuild() {
+        return Mono.defer(() -> {
+            Instant now = Instant.now();
+            long cutoff = now.minus(retention).toEpochMilli();
+            Instant since = now.minus(retention).minus(BASELINE_SLACK);
+            Map<Long, Observations> rebuilt = new HashMap<>();
+            // An empty read leaves the next refresh to start from the same point
+            long[] latest = {since.toEpochMilli()};
+            synchronized (this) {
+                pending = new ArrayList<>();
+            }
+
+            return databaseClient.sql(HISTORY_SINCE_SQL)
+                    .bind("since", since)
+                    .map(row -> {
+                        Long views = row.get("views", Long.class);
+                        long time = row.get("created_at", Instant.class).toEpochMilli();
+                        add(rebuilt, row.get("topic_id", Long.class), views == null ? 0 : views, time, cutoff);
+                        latest[0] = Math.max(latest[0], time);
+                        return 1;
+                    })
+                    .all()
+                    .count()
+                    .doOnNext(rows -> {
+                        synchronized (this) {
+                            if (pending != null) {
+                                for (Observation observation : pending) {
+                                    add(rebuilt, observation.topicId(), observation.views(), observation.time(),
+                                            cutoff);
+                                    latest[0] = Math.max(latest[0], observation.time());
+                                }
+                            }
+                            topics = rebuilt;
+                            lastSeen = Instant.ofEpochMilli(latest[0]);
+                        }
+                        log.info("Rebuilt rising topic counters for {} topics from {} observations",
+                                rebuilt.size(), rows);
+                    })
+                    .doFinally(signal -> {
+                        synchronized (this) {
+                            pending = null;
+                        }
+                    })
+                    .then();
+        });
+    }
+
+    /**
+     * Returns the {@code k} topics whose views grew the most, relative to where they started, over the window
+     * ending now. Growth is divided by the baseline, floored at {@code rising.min-baseline-views} so a topic going
+     * from a handful of views to a few more doesn't outrank a real spike. Only topics that grew are returned.
+     */
+    public synchronized List<Riser> topK(RisingWindow window, int k, Instant now) {
+        long end = now.toEpochMilli();
+        long start = now.minus(window.getLength()).toEpochMilli();
+        // Min-heap of the best k so far; each topic either displaces the weakest or is dropped
+        PriorityQueue<Riser> best = new PriorityQueue<>(k + 1, RISER_ORDER);
+
+        for (Map.Entry<Long, Observations> entry : topics.entrySet()) {
+            Observations observations = entry.getValue();
+            int latest = observations.lastAtOrBefore(end);
+            if (latest < 0 || observations.time(latest) <= start) {
+                continue;
+            }
+            int baseline = observations.lastAtOrBefore(start);
+            long views = observations.views(latest);
+            long baselineViews = baseline < 0 ? 0 : observations.views(baseline);
+            long growth = views - baselineViews;
+            if (growth <= 0) {
+                continue;
+            }
+
+            Riser riser = new Riser(entry.getKey(), views, baselineViews, growth,
+                    (double) growth / Math.max(baselineViews, minBaselineViews));
+            if (best.size() < k) {
+                best.add(riser);
+            } else if (RISER_ORDER.compare(riser, best.peek()) > 0) {
+                best.poll();
+                best.add(riser);
+            }
+        }
+
+        List<Riser> risers = new ArrayList<>(best);
+        risers.sort(RISER_ORDER.reversed());
+        return risers;
+    }
+
+    private void add(Map<Long, Observations> target, long topicId, long views, long time, long cutoff) {
+        target.computeIfAbsent(topicId, id -> new Observations(capacity)).add(time, views, cutoff);
+    }
+}
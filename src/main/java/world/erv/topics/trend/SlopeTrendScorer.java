@@ -0,0 +1,32 @@
+package world.erv.topics.trend;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Least-squares slope of views over the stored observations, in views per ingestion run.
+ */
+@Component
+@Order(1)
+public class SlopeTrendScorer implements TrendScorer {
+
+    @Override
+    public String name() {
+        return "slope";
+    }
+
+    @Override
+    public double score(ViewRingBuffer history, double[] state, int offset) {
+        int n = history.size();
+        if (n < 2) {
+            return 0.0;
+        }
+
+        // x runs 1..n, so its sums have closed forms; the ring keeps the sums involving y as values come and go
+        double sumX = n * (n + 1) / 2.0;
+        double sumX2 = n * (n + 1) * (2.0 * n + 1) / 6.0;
+        double denominator = n * sumX2 - sumX * sumX;
+
+        return denominator == 0 ? 0.0 : (n * (double) history.weightedSum() - sumX * history.sum()) / denominator;
+    }
+}
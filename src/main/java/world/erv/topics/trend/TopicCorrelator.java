@@ -0,0 +1,236 @@
+package world.erv.topics.trend;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/**
+ * Finds, for every topic, the topics whose daily view series correlate most strongly with its own. Series are
+ * aligned {@code long[]}s with a presence bitset each, since a topic is only observed on the days it is in the
+ * featured feed. A pair is only compared over the days both were present, and only if there are at least
+ * {@code minOverlap} of them. Topics are sorted by the first day they were seen, so a row only scans those that
+ * appeared before it left, and a bitset AND and popcount settle the overlap before any arithmetic. Rows are split
+ * across a fork/join pool; each row is computed independently so no state is shared between workers.
+ */
+public final class TopicCorrelator {
+
+    // Rows per leaf task; small enough that stealing evens out rows with very different candidate counts
+    private static final int ROWS_PER_TASK = 16;
+
+    /**
+     * {@code related} is correlated with {@code topic}; both are indexes into the series passed to
+     * {@link #correlate}.
+     */
+    public record Relation(int topic, int related, double correlation, int overlap) {
+    }
+
+    private static final Comparator<Relation> RELATION_ORDER = Comparator.comparingDouble(Relation::correlation)
+            .thenComparingInt(Relation::overlap);
+
+    private final ForkJoinPool pool;
+    private final int minOverlap;
+    private final double minCorrelation;
+    private final int maxRelated;
+
+    public TopicCorrelator(ForkJoinPool pool, int minOverlap, double minCorrelation, int maxRelated) {
+        if (minOverlap < 2) {
+            throw new IllegalArgumentException("minOverlap must be at least 2");
+        }
+        this.pool = pool;
+        this.minOverlap = minOverlap;
+        this.minCorrelation = minCorrelation;
+        this.maxRelated = maxRelated;
+    }
+
+    /**
+     * Returns, for each topic, up to {@code maxRelated} relations with a Pearson correlation of at least
+     * {@code minCorrelation}, strongest first. {@code presence[i]} has bit {@code d} set when {@code series[i][d]}
+     * was observed.
+     */
+    public List<List<Relation>> correlate(long[][] series, long[][] presence) {
+        Topics topics = new Topics(series, presence);
+        pool.invoke(new Rows(topics, 0, series.length));
+
+        List<List<Relation>> results = new ArrayList<>(series.length);
+        for (int i = 0; i < series.length; i++) {
+            results.add(List.of());
+        }
+        for (int k = 0; k < series.length; k++) {
+            results.set(topics.index[k], topics.related[k]);
+        }
+        return results;
+    }
+
+    /**
+     * The input reordered by each topic's first present day, with the span and count of present days alongside,
+     * so a row's scan reads everything sequentially.
+     */
+    private static final class Topics {
+        final int[] index;
+        final long[][] series;
+        final long[][] presence;
+        final int[] first;
+        final int[] last;
+        final int[] counts;
+        // Written by the row tasks, one slot each; invoke() publishes them to the caller
+        final List<Relation>[] related;
+
+        @SuppressWarnings("unchecked")
+        Topics(long[][] series, long[][] presence) {
+            int n = series.length;
+            int[] firstByIndex = new int[n];
+            for (int i = 0; i < n; i++) {
+                firstByIndex[i] = firstBit(presence[i]);
+            }
+            this.index = IntStream.range(0, n)
+                    .boxed()
+                    .sorted(Comparator.comparingInt(i -> firstByIndex[i]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+
+            this.series = new long[n][];
+            this.presence = new long[n][];
+            this.first = new int[n];
+            this.last = new int[n];
+            this.counts = new int[n];
+            this.related = new List[n];
+            for (int k = 0; k < n; k++) {
+                long[] bits = presence[index[k]];
+                this.series[k] = series[index[k]];
+                this.presence[k] = bits;
+                this.first[k] = firstByIndex[index[k]];
+                this.last[k] = lastBit(bits);
+                for (long word : bits) {
+                    this.counts[k] += Long.bitCount(word);
+                }
+                this.related[k] = List.of();
+            }
+        }
+    }
+
+    private final class Rows extends RecursiveAction {
+        private final Topics topics;
+        private final int from;
+        private final int to;
+
+        Rows(Topics topics, int from, int to) {
+            this.topics = topics;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                for (int k = from; k < to; k++) {
+                    topics.related[k] = row(topics, k);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Rows(topics, from, mid), new Rows(topics, mid, to));
+        }
+    }
+
+    private List<Relation> row(Topics topics, int k) {
+        if (topics.counts[k] < minOverlap) {
+            return List.of();
+        }
+
+        PriorityQueue<Relation> best = new PriorityQueue<>(maxRelated + 1, RELATION_ORDER);
+        long[] mask = topics.presence[k];
+        // Shared days lie within both spans, so a candidate has to start at least minOverlap days before this
+        // topic's last day and end at least minOverlap days after its first
+        int latestStart = topics.last[k] - minOverlap + 1;
+        int earliestEnd = topics.first[k] + minOverlap - 1;
+        for (int c = 0; c < topics.index.length && topics.first[c] <= latestStart; c++) {
+            if (c == k || topics.counts[c] < minOverlap || topics.last[c] < earliestEnd) {
+                continue;
+            }
+            int overlap = overlap(mask, topics.presence[c]);
+            if (overlap < minOverlap) {
+                continue;
+            }
+
+            double correlation = pearson(topics.series[k], topics.series[c], mask, topics.presence[c], overlap);
+            // Also drops NaN, from a series that is flat over the shared days
+            if (!(correlation >= minCorrelation)) {
+                continue;
+            }
+            Relation relation = new Relation(topics.index[k], topics.index[c], correlation, overlap);
+            if (best.size() < maxRelated) {
+                best.add(relation);
+            } else if (RELATION_ORDER.compare(relation, best.peek()) > 0) {
+                best.poll();
+                best.add(relation);
+            }
+        }
+
+        List<Relation> related = new ArrayList<>(best);
+        related.sort(RELATION_ORDER.reversed());
+        return related;
+    }
+
+    /**
+     * Pearson correlation of {@code x} and {@code y} over the days present in both, or {@link Double#NaN} when
+     * either is constant over them.
+     */
+    private static double pearson(long[] x, long[] y, long[] xPresence, long[] yPresence, int n) {
+        double sumX = 0;
+        double sumY = 0;
+        double sumXX = 0;
+        double sumYY = 0;
+        double sumXY = 0;
+        for (int w = 0; w < xPresence.length; w++) {
+            long both = xPresence[w] & yPresence[w];
+            while (both != 0) {
+                int d = (w << 6) + Long.numberOfTrailingZeros(both);
+                both &= both - 1;
+                double a = x[d];
+                double b = y[d];
+                sumX += a;
+                sumY += b;
+                sumXX += a * a;
+                sumYY += b * b;
+                sumXY += a * b;
+            }
+        }
+
+        double varianceX = n * sumXX - sumX * sumX;
+        double varianceY = n * sumYY - sumY * sumY;
+        if (varianceX <= 0 || varianceY <= 0) {
+            return Double.NaN;
+        }
+        return (n * sumXY - sumX * sumY) / Math.sqrt(varianceX * varianceY);
+    }
+
+    private static int overlap(long[] a, long[] b) {
+        int count = 0;
+        for (int w = 0; w < a.length; w++) {
+            count += Long.bitCount(a[w] & b[w]);
+        }
+        return count;
+    }
+
+    private static int firstBit(long[] bits) {
+        for (int w = 0; w < bits.length; w++) {
+            if (bits[w] != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(bits[w]);
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private static int lastBit(long[] bits) {
+        for (int w = bits.length - 1; w >= 0; w--) {
+            if (bits[w] != 0) {
+                return (w << 6) + 63 - Long.numberOfLeadingZeros(bits[w]);
+            }
+        }
+        return -1;
+    }
+}
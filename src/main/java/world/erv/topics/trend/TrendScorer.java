@@ -0,0 +1,32 @@
+package world.erv.topics.trend;
+
+/**
+ * A trend signal computed incrementally for one topic at a time. Implementations are registered as beans and run
+ * by {@link TrendScoringEngine} each time a new view observation for a topic is recorded.
+ * <p>
+ * Scorers must not allocate in {@link #score}: anything they need to carry between observations lives in the
+ * slice of the topic's {@code state} array reserved for them.
+ */
+public interface TrendScorer {
+
+    /**
+     * Key the score is stored under. Must be stable, since it is persisted.
+     */
+    String name();
+
+    /**
+     * Number of doubles of per-topic state this scorer keeps between observations.
+     */
+    default int stateSize() {
+        return 0;
+    }
+
+    /**
+     * Scores a topic after its latest observation has been appended to {@code history}.
+     *
+     * @param history the topic's recent observations, including the latest one
+     * @param state   per-topic state shared by all scorers, zeroed for a new topic
+     * @param offset  start of this scorer's {@link #stateSize()} slots in {@code state}
+     */
+    double score(ViewRingBuffer history, double[] state, int offset);
+}
@@ -0,0 +1,181 @@
+package world.erv.topics.trend;
+
+import io.r2dbc.postgresql.codec.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Keeps a ring of recent view observations and the scorer state for every topic, and runs all registered
+ * {@link TrendScorer}s when a new observation is recorded. State is rebuilt from {@code wikipedia_view_history} at
+ * startup so scores continue across restarts.
+ */
+@Component
+@ConditionalOnProperty(name = "features.wikipedia-service.enabled", havingValue = "true")
+public class TrendScoringEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendScoringEngine.class);
+    // The only TTL Reactor treats as "never expires"; any longer one overflows when converted to nanoseconds
+    private static final Duration FOREVER = Duration.ofMillis(Long.MAX_VALUE);
+
+    // Replays, oldest first, the last `capacity` observations of every topic seen in the seeding window
+    private static final String SEED_SQL = "SELECT topic_id, views " +
+            "FROM (" +
+            "SELECT topic_id, views, created_at, " +
+            "row_number() OVER (PARTITION BY topic_id ORDER BY created_at DESC) AS rn " +
+            "FROM wikipedia_view_history " +
+            "WHERE created_at >= :since" +
+            ") h " +
+            "WHERE rn <= :capacity " +
+            "ORDER BY topic_id, created_at";
+
+    private static final class TopicState {
+        final ViewRingBuffer history;
+        final double[] state;
+
+        TopicState(int capacity, int stateSize) {
+            this.history = new ViewRingBuffer(capacity);
+            this.state = new double[stateSize];
+        }
+    }
+
+    private final List<TrendScorer> scorers;
+    private final int[] stateOffsets;
+    private final int stateSize;
+    private final int capacity;
+    private final Duration seedWindow;
+    private final DatabaseClient databaseClient;
+    private final LongObjectMap<TopicState> topics = new LongObjectMap<>(1024);
+    private volatile Mono<Void> seeded;
+
+    public TrendScoringEngine(
+            List<TrendScorer> scorers,
+            DatabaseClient databaseClient,
+            @Value("${trend.history-capacity:168}") int capacity,
+            @Value("${trend.seed-window:P7D}") Duration seedWindow
+    ) {
+        this.scorers = List.copyOf(scorers);
+        this.databaseClient = databaseClient;
+        this.capacity = capacity;
+        this.seedWindow = seedWindow;
+
+        this.stateOffsets = new int[this.scorers.size()];
+        int offset = 0;
+        for (int i = 0; i < this.scorers.size(); i++) {
+            stateOffsets[i] = offset;
+            offset += this.scorers.get(i).stateSize();
+        }
+        this.stateSize = offset;
+        this.seeded = newSeed();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedOnStartup() {
+        seeded.subscribe(
+                null,
+                error -> log.error("Failed to seed trend scores", error)
+        );
+    }
+
+    /**
+     * Completes once state has been rebuilt from stored history. Observations must not be recorded before then.
+     */
+    public Mono<Void> awaitSeeded() {
+        return seeded;
+    }
+
+    /**
+     * Drops all in-memory state and rebuilds it from stored history, e.g. after an ingestion run whose
+     * observations were recorded here was rolled back.
+     */
+    public Mono<Void> reseed() {
+        Mono<Void> reseeded = newSeed();
+        this.seeded = reseeded;
+        return reseeded;
+    }
+
+    public List<TrendScorer> getScorers() {
+        return scorers;
+    }
+
+    /**
+     * Records an observation for the topic and writes each scorer's new score into {@code scores}, in the order of
+     * {@link #getScorers()}.
+     */
+    public synchronized void observe(long topicId, long views, double[] scores) {
+        TopicState topic = topics.get(topicId);
+        if (topic == null) {
+            topic = new TopicState(capacity, stateSize);
+            topics.put(topicId, topic);
+        }
+        topic.history.add(views);
+        for (int i = 0; i < scorers.size(); i++) {
+            scores[i] = scorers.get(i).score(topic.history, topic.state, stateOffsets[i]);
+        }
+    }
+
+    /**
+     * Records an observation for the topic and returns the new scores as a JSON object keyed by scorer name.
+     */
+    public Json observe(long topicId, long views) {
+        double[] scores = new double[scorers.size()];
+        observe(topicId, views, scores);
+
+        StringBuilder json = new StringBuilder(32 * scores.length);
+        json.append('{');
+        for (int i = 0; i < scores.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(scorers.get(i).name()).append("\":");
+            // JSON has no representation for NaN or infinities
+            if (Double.isFinite(scores[i])) {
+                json.append(scores[i]);
+            } else {
+                json.append("null");
+            }
+        }
+        json.append('}');
+
+        return Json.of(json.toString());
+    }
+
+    private Mono<Void> newSeed() {
+        return Mono.defer(() -> {
+                    synchronized (this) {
+                        topics.clear();
+                    }
+                    double[] scores = new double[scorers.size()];
+
+                    return databaseClient.sql(SEED_SQL)
+                            .bind("since", Instant.now().minus(seedWindow))
+                            .bind("capacity", capacity)
+                            .map(row -> {
+                                Long views = row.get("views", Long.class);
+                                observe(row.get("topic_id", Long.class), views == null ? 0 : views, scores);
+                                return 1;
+                            })
+                            .all()
+                            .count()
+                            .doOnNext(rows -> log.info("Seeded trend scores for {} topics from {} observations",
+                                    topicCount(), rows))
+                            .then();
+                })
+                // A failed seed is retried by the next caller rather than failing every later run
+                .cache(done -> FOREVER, error -> Duration.ZERO, () -> FOREVER);
+    }
+
+    private synchronized int topicCount() {
+        return topics.size();
+    }
+}
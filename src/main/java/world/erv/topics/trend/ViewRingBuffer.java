@@ -0,0 +1,80 @@
+package world.erv.topics.trend;
+
+/**
+ * Fixed-capacity ring of a topic's most recent view observations, oldest first. Keeps running sums of the values
+ * it holds so window statistics don't need a rescan.
+ */
+public final class ViewRingBuffer {
+
+    private final long[] values;
+    private int head;
+    private int size;
+    private long sum;
+    private long weightedSum;
+    private double sumSquares;
+
+    public ViewRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.values = new long[capacity];
+    }
+
+    public void add(long value) {
+        int tail = (head + size) % values.length;
+        if (size == values.length) {
+            long evicted = values[head];
+            // Every remaining value moves one position towards the oldest, lowering its weight by one
+            weightedSum -= sum;
+            sum -= evicted;
+            sumSquares -= (double) evicted * evicted;
+            head = (head + 1) % values.length;
+        } else {
+            size++;
+        }
+        values[tail] = value;
+        weightedSum += (long) size * value;
+        sum += value;
+        sumSquares += (double) value * value;
+    }
+
+    /**
+     * Returns the i-th held value, where 0 is the oldest.
+     */
+    public long get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        return values[(head + i) % values.length];
+    }
+
+    /**
+     * Returns the value {@code back} observations before the latest one, where 0 is the latest.
+     */
+    public long fromLatest(int back) {
+        return get(size - 1 - back);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    /**
+     * Returns the sum of each held value times its 1-based position, where the oldest is at position 1.
+     */
+    public long weightedSum() {
+        return weightedSum;
+    }
+
+    public double sumSquares() {
+        return sumSquares;
+    }
+}
@@ -0,0 +1,34 @@
+package world.erv.topics.trend;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Standard score of the latest observation against the baseline formed by the earlier stored observations.
+ */
+@Component
+@Order(4)
+public class ZScoreTrendScorer implements TrendScorer {
+
+    @Override
+    public String name() {
+        return "zscore";
+    }
+
+    @Override
+    public double score(ViewRingBuffer history, double[] state, int offset) {
+        int baselineSize = history.size() - 1;
+        if (baselineSize < 2) {
+            return 0.0;
+        }
+
+        double latest = history.fromLatest(0);
+        double mean = (history.sum() - latest) / baselineSize;
+        double variance = (history.sumSquares() - latest * latest) / baselineSize - mean * mean;
+        if (variance <= 0) {
+            return 0.0;
+        }
+
+        return (latest - mean) / Math.sqrt(variance);
+    }
+}
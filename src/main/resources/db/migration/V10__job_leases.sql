@@ -0,0 +1,10 @@
+-- One row per scheduled job. Whichever instance holds the job's advisory lock owns the row; each acquisition bumps
+-- fencing_token, and writes made under a lease check the token so a holder that lost its lock can't commit.
+CREATE TABLE IF NOT EXISTS job_leases
+(
+    job_name         TEXT PRIMARY KEY,
+    holder           TEXT                     NOT NULL,
+    fencing_token    BIGINT                   NOT NULL,
+    acquired_at      TIMESTAMP WITH TIME ZONE NOT NULL,
+    lease_expires_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,11 @@
+-- Validators and content hash of the last featured-feed response that was ingested, so the next run can make a
+-- conditional request and skip a payload it has already stored.
+CREATE TABLE IF NOT EXISTS feed_fetch_state
+(
+    feed_name     TEXT PRIMARY KEY,
+    url           TEXT                     NOT NULL,
+    etag          TEXT,
+    last_modified TEXT,
+    content_hash  TEXT                     NOT NULL,
+    fetched_at    TIMESTAMP WITH TIME ZONE NOT NULL
+);
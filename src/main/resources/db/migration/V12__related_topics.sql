@@ -0,0 +1,12 @@
+-- The strongest correlations between topics' hourly view series, recomputed wholesale by each related-topics run.
+CREATE TABLE IF NOT EXISTS related_topics
+(
+    topic_id         BIGINT                   NOT NULL,
+    related_topic_id BIGINT                   NOT NULL,
+    correlation      DOUBLE PRECISION         NOT NULL,
+    overlap_hours    INTEGER                  NOT NULL,
+    computed_at      TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (topic_id, related_topic_id),
+    CONSTRAINT fk_related_topics_topic FOREIGN KEY (topic_id) REFERENCES topics (id) ON DELETE CASCADE,
+    CONSTRAINT fk_related_topics_related FOREIGN KEY (related_topic_id) REFERENCES topics (id) ON DELETE CASCADE
+);
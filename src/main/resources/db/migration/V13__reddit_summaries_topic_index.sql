@@ -0,0 +1,2 @@
+-- Latest summary per topic
+CREATE INDEX idx_reddit_summaries_topic_created ON reddit_summaries (topic_id, created_at DESC);
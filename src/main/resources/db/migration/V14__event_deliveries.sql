@@ -0,0 +1,19 @@
+-- One row per event and consumer that hasn't handled it yet, replacing event_outbox.pending_consumers so each
+-- consumer's delivery is retried on its own schedule. A delivery isn't picked up again before available_at, which
+-- is pushed back while it is being delivered and, after a failure, by an exponential backoff.
+CREATE TABLE IF NOT EXISTS event_deliveries
+(
+    outbox_id    BIGINT                   NOT NULL REFERENCES event_outbox (id) ON DELETE CASCADE,
+    consumer     TEXT                     NOT NULL,
+    attempts     INTEGER                  NOT NULL DEFAULT 0,
+    available_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (outbox_id, consumer)
+);
+
+CREATE INDEX idx_event_deliveries_consumer_available ON event_deliveries (consumer, available_at);
+
+INSERT INTO event_deliveries (outbox_id, consumer, available_at)
+SELECT o.id, c.consumer, o.created_at
+FROM event_outbox o, unnest(o.pending_consumers) AS c(consumer);
+
+ALTER TABLE event_outbox DROP COLUMN pending_consumers;
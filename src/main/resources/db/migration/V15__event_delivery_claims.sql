@@ -0,0 +1,5 @@
+-- The instance currently holding a delivery, which keeps pushing its available_at back for as long as the delivery
+-- is queued or running there; NULL once it is released for a retry.
+ALTER TABLE event_deliveries ADD COLUMN IF NOT EXISTS claimed_by TEXT;
+
+CREATE INDEX idx_event_deliveries_claimed_by ON event_deliveries (claimed_by) WHERE claimed_by IS NOT NULL;
@@ -0,0 +1,5 @@
+-- Related topics are now correlated over daily view series. Counts of shared hours don't carry over, and the next
+-- run recomputes every row anyway.
+DELETE FROM related_topics;
+
+ALTER TABLE related_topics RENAME COLUMN overlap_hours TO overlap_days;
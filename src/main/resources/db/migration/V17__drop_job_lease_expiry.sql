@@ -0,0 +1,3 @@
+-- Nothing read the expiry, and renewing it updated the row that fenced transactions share-lock, so a long fenced
+-- transaction blocked its own job's renewal. The advisory lock's session is what keeps a job held.
+ALTER TABLE job_leases DROP COLUMN IF EXISTS lease_expires_at;
@@ -0,0 +1,28 @@
+-- Collapse any duplicate titles left behind by overlapping ingestion runs onto the oldest row
+CREATE TEMPORARY TABLE topic_duplicates ON COMMIT DROP AS
+SELECT id, keep_id
+FROM (SELECT id, min(id) OVER (PARTITION BY title) AS keep_id FROM topics) ranked
+WHERE id <> keep_id;
+
+UPDATE wikipedia_view_history h
+SET topic_id = d.keep_id
+FROM topic_duplicates d
+WHERE h.topic_id = d.id;
+
+UPDATE gdelt_tone_charts g
+SET topic_id = d.keep_id
+FROM topic_duplicates d
+WHERE g.topic_id = d.id;
+
+UPDATE reddit_summaries r
+SET topic_id = d.keep_id
+FROM topic_duplicates d
+WHERE r.topic_id = d.id;
+
+DELETE
+FROM topics t
+    USING topic_duplicates d
+WHERE t.id = d.id;
+
+ALTER TABLE topics
+    ADD CONSTRAINT uq_topics_title UNIQUE (title);
@@ -0,0 +1,3 @@
+-- Covers the per-day trending query: a range scan on created_at that never has to visit the heap
+CREATE INDEX idx_wikipedia_view_history_created_views
+    ON wikipedia_view_history (created_at, views DESC) INCLUDE (topic_id, view_trend);
@@ -0,0 +1,3 @@
+-- Scores from each registered TrendScorer, keyed by scorer name
+ALTER TABLE wikipedia_view_history
+    ADD COLUMN trend_scores JSONB;
@@ -0,0 +1,2 @@
+-- Latest tone chart per topic
+CREATE INDEX idx_gdelt_tone_charts_topic_created ON gdelt_tone_charts (topic_id, created_at DESC);
@@ -0,0 +1,131 @@
+-- Pre-aggregated view history per topic at hour, day and week resolution (UTC buckets). Maintained
+-- incrementally by each ingestion run; the averages are sum_* / *samples.
+
+CREATE TABLE IF NOT EXISTS wikipedia_view_rollup_hour
+(
+    topic_id      BIGINT                   NOT NULL,
+    bucket_start  TIMESTAMP WITH TIME ZONE NOT NULL,
+    samples       INTEGER                  NOT NULL,
+    min_views     BIGINT,
+    max_views     BIGINT,
+    last_views    BIGINT,
+    sum_views     BIGINT                   NOT NULL,
+    trend_samples INTEGER                  NOT NULL,
+    min_trend     DOUBLE PRECISION,
+    max_trend     DOUBLE PRECISION,
+    last_trend    DOUBLE PRECISION,
+    sum_trend     DOUBLE PRECISION         NOT NULL,
+    last_at       TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (topic_id, bucket_start)
+);
+
+ALTER TABLE wikipedia_view_rollup_hour
+    ADD CONSTRAINT fk_wikipedia_view_rollup_hour_topics
+        FOREIGN KEY (topic_id)
+            REFERENCES topics (id)
+            ON DELETE CASCADE;
+
+INSERT INTO wikipedia_view_rollup_hour
+(topic_id, bucket_start, samples, min_views, max_views, last_views, sum_views,
+ trend_samples, min_trend, max_trend, last_trend, sum_trend, last_at)
+SELECT topic_id,
+       date_trunc('hour', created_at AT TIME ZONE 'UTC') AT TIME ZONE 'UTC',
+       count(*),
+       min(views),
+       max(views),
+       (array_agg(views ORDER BY created_at DESC))[1],
+       COALESCE(sum(views), 0),
+       count(view_trend),
+       min(view_trend),
+       max(view_trend),
+       (array_agg(view_trend ORDER BY created_at DESC))[1],
+       COALESCE(sum(view_trend), 0),
+       max(created_at)
+FROM wikipedia_view_history
+GROUP BY 1, 2;
+
+CREATE TABLE IF NOT EXISTS wikipedia_view_rollup_day
+(
+    topic_id      BIGINT                   NOT NULL,
+    bucket_start  TIMESTAMP WITH TIME ZONE NOT NULL,
+    samples       INTEGER                  NOT NULL,
+    min_views     BIGINT,
+    max_views     BIGINT,
+    last_views    BIGINT,
+    sum_views     BIGINT                   NOT NULL,
+    trend_samples INTEGER                  NOT NULL,
+    min_trend     DOUBLE PRECISION,
+    max_trend     DOUBLE PRECISION,
+    last_trend    DOUBLE PRECISION,
+    sum_trend     DOUBLE PRECISION         NOT NULL,
+    last_at       TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (topic_id, bucket_start)
+);
+
+ALTER TABLE wikipedia_view_rollup_day
+    ADD CONSTRAINT fk_wikipedia_view_rollup_day_topics
+        FOREIGN KEY (topic_id)
+            REFERENCES topics (id)
+            ON DELETE CASCADE;
+
+INSERT INTO wikipedia_view_rollup_day
+(topic_id, bucket_start, samples, min_views, max_views, last_views, sum_views,
+ trend_samples, min_trend, max_trend, last_trend, sum_trend, last_at)
+SELECT topic_id,
+       date_trunc('day', created_at AT TIME ZONE 'UTC') AT TIME ZONE 'UTC',
+       count(*),
+       min(views),
+       max(views),
+       (array_agg(views ORDER BY created_at DESC))[1],
+       COALESCE(sum(views), 0),
+       count(view_trend),
+       min(view_trend),
+       max(view_trend),
+       (array_agg(view_trend ORDER BY created_at DESC))[1],
+       COALESCE(sum(view_trend), 0),
+       max(created_at)
+FROM wikipedia_view_history
+GROUP BY 1, 2;
+
+CREATE TABLE IF NOT EXISTS wikipedia_view_rollup_week
+(
+    topic_id      BIGINT                   NOT NULL,
+    bucket_start  TIMESTAMP WITH TIME ZONE NOT NULL,
+    samples       INTEGER                  NOT NULL,
+    min_views     BIGINT,
+    max_views     BIGINT,
+    last_views    BIGINT,
+    sum_views     BIGINT                   NOT NULL,
+    trend_samples INTEGER                  NOT NULL,
+    min_trend     DOUBLE PRECISION,
+    max_trend     DOUBLE PRECISION,
+    last_trend    DOUBLE PRECISION,
+    sum_trend     DOUBLE PRECISION         NOT NULL,
+    last_at       TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (topic_id, bucket_start)
+);
+
+ALTER TABLE wikipedia_view_rollup_week
+    ADD CONSTRAINT fk_wikipedia_view_rollup_week_topics
+        FOREIGN KEY (topic_id)
+            REFERENCES topics (id)
+            ON DELETE CASCADE;
+
+INSERT INTO wikipedia_view_rollup_week
+(topic_id, bucket_start, samples, min_views, max_views, last_views, sum_views,
+ trend_samples, min_trend, max_trend, last_trend, sum_trend, last_at)
+SELECT topic_id,
+       date_trunc('week', created_at AT TIME ZONE 'UTC') AT TIME ZONE 'UTC',
+       count(*),
+       min(views),
+       max(views),
+       (array_agg(views ORDER BY created_at DESC))[1],
+       COALESCE(sum(views), 0),
+       count(view_trend),
+       min(view_trend),
+       max(view_trend),
+       (array_agg(view_trend ORDER BY created_at DESC))[1],
+       COALESCE(sum(view_trend), 0),
+       max(created_at)
+FROM wikipedia_view_history
+GROUP BY 1, 2;
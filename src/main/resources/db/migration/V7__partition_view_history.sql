@@ -0,0 +1,67 @@
+-- Rebuild wikipedia_view_history as a table range-partitioned by month on created_at. Partitions are named
+-- wikipedia_view_history_pYYYYMM and cover UTC calendar months; the application creates future ones ahead of time
+-- and applies retention to old ones.
+ALTER TABLE wikipedia_view_history
+    RENAME TO wikipedia_view_history_unpartitioned;
+
+-- Keep handing out ids from the same sequence
+ALTER SEQUENCE wikipedia_view_history_id_seq OWNED BY NONE;
+
+CREATE TABLE wikipedia_view_history
+(
+    id           BIGINT                   NOT NULL DEFAULT nextval('wikipedia_view_history_id_seq'),
+    topic_id     BIGINT                   NOT NULL,
+    view_trend   DOUBLE PRECISION,
+    views        BIGINT,
+    modified_at  TIMESTAMP WITH TIME ZONE NOT NULL,
+    created_at   TIMESTAMP WITH TIME ZONE NOT NULL,
+    trend_scores JSONB
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE wikipedia_view_history_id_seq OWNED BY wikipedia_view_history.id;
+
+DO
+$$
+    DECLARE
+        month_start DATE;
+    BEGIN
+        FOR month_start IN
+            SELECT generate_series(
+                           date_trunc('month', COALESCE(
+                                   (SELECT min(created_at) FROM wikipedia_view_history_unpartitioned),
+                                   now()) AT TIME ZONE 'UTC'),
+                           date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '3 months',
+                           INTERVAL '1 month')::DATE
+            LOOP
+                EXECUTE format(
+                        'CREATE TABLE %I PARTITION OF wikipedia_view_history FOR VALUES FROM (%L) TO (%L)',
+                        'wikipedia_view_history_p' || to_char(month_start, 'YYYYMM'),
+                        month_start::TIMESTAMP AT TIME ZONE 'UTC',
+                        (month_start + INTERVAL '1 month')::TIMESTAMP AT TIME ZONE 'UTC');
+            END LOOP;
+    END
+$$;
+
+INSERT INTO wikipedia_view_history (id, topic_id, view_trend, views, modified_at, created_at, trend_scores)
+SELECT id, topic_id, view_trend, views, modified_at, created_at, trend_scores
+FROM wikipedia_view_history_unpartitioned;
+
+DROP TABLE wikipedia_view_history_unpartitioned;
+
+-- Created after the copy, and after the old table's constraints and indexes have released their names
+ALTER TABLE wikipedia_view_history
+    ADD PRIMARY KEY (id, created_at);
+
+ALTER TABLE wikipedia_view_history
+    ADD CONSTRAINT fk_wikipedia_view_history_topics
+        FOREIGN KEY (topic_id)
+            REFERENCES topics (id)
+            ON DELETE CASCADE;
+
+CREATE INDEX idx_topic_views_date ON wikipedia_view_history (topic_id, created_at);
+
+CREATE INDEX idx_wikipedia_view_history_created_views
+    ON wikipedia_view_history (created_at, views DESC) INCLUDE (topic_id, view_trend);
+
+-- Backs findTopByOrderByModifiedAtDesc, which can't be pruned by created_at
+CREATE INDEX idx_wikipedia_view_history_modified ON wikipedia_view_history (modified_at DESC);
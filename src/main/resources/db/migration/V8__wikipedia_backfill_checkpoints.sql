@@ -0,0 +1,8 @@
+-- One row per featured-feed date whose history has been backfilled, written in the same transaction as that
+-- day's rows so an interrupted backfill resumes with the first date that has no checkpoint.
+CREATE TABLE IF NOT EXISTS wikipedia_backfill_checkpoints
+(
+    feed_date    DATE PRIMARY KEY,
+    articles     INTEGER                  NOT NULL,
+    completed_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
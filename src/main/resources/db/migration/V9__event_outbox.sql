@@ -0,0 +1,10 @@
+-- Events written in the same transaction as the data they describe. A row lists the consumers that have not yet
+-- handled it and is deleted once that list is empty; rows left over from a previous run are replayed at startup.
+CREATE TABLE IF NOT EXISTS event_outbox
+(
+    id                BIGSERIAL PRIMARY KEY,
+    event_type        TEXT                     NOT NULL,
+    payload           JSONB                    NOT NULL,
+    pending_consumers TEXT[]                   NOT NULL,
+    created_at        TIMESTAMP WITH TIME ZONE NOT NULL
+);
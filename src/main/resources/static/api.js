@@ -36,11 +36,78 @@ export async function fetchArticleToneChart(id) {
     return await response.json();
 }
 
-export async function fetchLatestRedditPosts(id) {
-    // No changes needed here
-    const response = await fetch(`${API_BASE}/latest-reddit-posts/${id}`)
+/**
+ * Fetches the detail bundle of a single topic.
+ * @param {string} id - The ID of the article (Topic ID).
+ * @param {Array<string>} fields - The parts to include: 'topic', 'views', 'tone', 'summary'. Empty means all.
+ * @returns {Promise<object>} A promise that resolves to the bundle; parts that don't exist yet are omitted.
+ */
+export async function fetchTopicBundle(id, fields = []) {
+    const params = new URLSearchParams();
+    if (fields.length > 0) {
+        params.set('fields', fields.join(','));
+    }
+    const response = await fetch(`${API_BASE}/topics/${id}/bundle?${params}`);
     if (!response.ok) {
         throw new Error(`HTTP error! Status: ${response.status}`);
     }
     return await response.json();
 }
+
+/**
+ * Fetches the detail bundles of several topics in one request; topics that don't exist are left out.
+ * @param {Array<number>} ids - The topic IDs, at most 50.
+ * @param {Array<string>} fields - The parts to include: 'topic', 'views', 'tone', 'summary'. Empty means all.
+ * @returns {Promise<Array<object>>} A promise that resolves to the bundles, in the order of ids.
+ */
+export async function fetchTopicBundles(ids, fields = []) {
+    const params = new URLSearchParams({ ids: ids.join(',') });
+    if (fields.length > 0) {
+        params.set('fields', fields.join(','));
+    }
+    const response = await fetch(`${API_BASE}/topics/bundle?${params}`);
+    if (!response.ok) {
+        throw new Error(`HTTP error! Status: ${response.status}`);
+    }
+    return await response.json();
+}
+
+/**
+ * Subscribes to live updates of today's trending topics. The server sends the full ranking on connect and a diff
+ * after each ingestion run; diffs are applied here so the callback always receives the complete list.
+ * @param {Function} onRanking - Called with the current array of articles whenever it changes.
+ * @returns {Function} Closes the subscription, including any stream opened by a reconnect.
+ */
+export function subscribeTrendingTopics(onRanking) {
+    let source = null;
+    let articlesById = new Map();
+    let version = null;
+
+    const connect = () => {
+        source = new EventSource(`${API_BASE}/trending-topics/stream`);
+
+        source.addEventListener('ranking', (event) => {
+            const snapshot = JSON.parse(event.data);
+            articlesById = new Map(snapshot.topics.map(topic => [topic.id, topic]));
+            version = snapshot.version;
+            onRanking(snapshot.topics);
+        });
+
+        source.addEventListener('diff', (event) => {
+            const diff = JSON.parse(event.data);
+            if (diff.previousVersion !== version) {
+                // Out of sync; reconnecting makes the server send a full ranking
+                source.close();
+                connect();
+                return;
+            }
+            diff.removed.forEach(id => articlesById.delete(id));
+            diff.upserted.forEach(topic => articlesById.set(topic.id, topic));
+            version = diff.version;
+            onRanking(diff.ranking.map(id => articlesById.get(id)).filter(Boolean));
+        });
+    };
+
+    connect();
+    return () => source.close();
+}
@@ -1,4 +1,10 @@
-import { fetchTopArticles, fetchArticleToneChart, fetchLatestRedditPosts } from './api.js';
+import {
+    fetchTopArticles,
+    fetchArticleToneChart,
+    fetchTopicBundle,
+    fetchTopicBundles,
+    subscribeTrendingTopics
+} from './api.js';
 import { displayToneChart, destroyCurrentChart } from './chart.js';
 import {
     renderArticleList,
@@ -6,10 +12,15 @@ import {
     hideModal,
     showModalLoading,
     showModalError,
-    renderRedditPosts,
+    renderRedditSummary,
     showMainContentLoading
 } from './ui.js';
 
+const PREFETCHED_TONE_CHARTS = 10;
+
+// Tone charts of the current top entries, fetched ahead of a click; replaced whenever the list changes
+let toneChartsById = new Map();
+
 document.addEventListener('DOMContentLoaded', initializeApp);
 
 /**
@@ -46,8 +57,13 @@ function initializeApp() {
         document.body.classList.add('dark-mode');
     }
 
-    // Load Initial Data
-    loadTopArticles().then();
+    // Load Initial Data, then keep it current
+    loadTopArticles().then(() => {
+        subscribeTrendingTopics(articles => {
+            renderArticleList(articles, handleArticleSelection);
+            prefetchToneCharts(articles);
+        });
+    });
 }
 
 /**
@@ -67,12 +83,33 @@ async function loadTopArticles() {
     try {
         const articles = await fetchTopArticles();
         renderArticleList(articles, handleArticleSelection);
+        prefetchToneCharts(articles);
     } catch (error) {
         console.error('Failed to fetch articles:', error);
         showArticleError('Failed to load articles.');
     }
 }
 
+/**
+ * Fetches the tone charts of the top articles in one request, so opening one of them needs no round trip. Charts
+ * prefetched for an earlier list are dropped, and a slower earlier prefetch can't add to the new ones.
+ * @param {Array<object>} articles - The rendered articles, top first.
+ */
+function prefetchToneCharts(articles) {
+    const prefetched = new Map();
+    toneChartsById = prefetched;
+
+    const ids = articles.slice(0, PREFETCHED_TONE_CHARTS).map(article => article.id);
+    if (ids.length === 0) {
+        return;
+    }
+    fetchTopicBundles(ids, ['tone'])
+        .then(bundles => bundles
+            .filter(bundle => bundle.toneChart)
+            .forEach(bundle => prefetched.set(String(bundle.id), bundle.toneChart)))
+        .catch(error => console.warn('Failed to prefetch tone charts:', error));
+}
+
 /**
  * Handles clicks within the article list, using event delegation.
  * @param {Event} event - The click event.
@@ -91,7 +128,7 @@ async function handleArticleListClick(event) {
     destroyCurrentChart();
 
     try {
-        const histogramData = await fetchArticleToneChart(articleId);
+        const histogramData = toneChartsById.get(articleId) ?? await fetchArticleToneChart(articleId);
         displayToneChart(histogramData, articleTitle);
     } catch (error) {
         console.error('Failed to fetch tone chart:', error);
@@ -100,7 +137,8 @@ async function handleArticleListClick(event) {
 }
 
 /**
- * Handles clicks on individual article items.
+ * Handles clicks on individual article items, loading the topic's discussion summary and, for a later click on its
+ * tone link, its tone chart in one request.
  * @param articleId
  * @param articleTitle
  * @returns {Promise<void>}
@@ -108,11 +146,14 @@ async function handleArticleListClick(event) {
 async function handleArticleSelection(articleId, articleTitle) {
     showMainContentLoading();
     try {
-        const posts = await fetchLatestRedditPosts(articleId);
-        renderRedditPosts(posts, articleTitle);
+        const bundle = await fetchTopicBundle(articleId, ['summary', 'tone']);
+        if (bundle.toneChart) {
+            toneChartsById.set(String(articleId), bundle.toneChart);
+        }
+        renderRedditSummary(bundle.redditSummary, articleTitle);
     } catch (error) {
         console.error(error);
         document.getElementById('reddit-feed-container').innerHTML =
-            `<div class="error">Failed to load posts: ${error.message}</div>`;
+            `<div class="error">Failed to load discussions: ${error.message}</div>`;
     }
 }
@@ -6,11 +6,7 @@ let currentChart = null;
  * @param {string} title - The title of the article.
  */
 export function displayToneChart(histogramData, title) {
-    let parsedData = histogramData;
-
-    if (histogramData && typeof histogramData.asString === 'string') {
-        parsedData = JSON.parse(histogramData.asString);
-    }
+    const parsedData = histogramData;
 
     if (!parsedData.histogram || parsedData.histogram.length === 0) {
         document.getElementById('chart-title').textContent = 'No tone data available.';
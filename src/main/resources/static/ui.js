@@ -118,58 +118,36 @@ export function showArticleError(message) {
 }
 
 /**
- * Renders the list of Reddit posts in the main content area.
- * @param {Array<object>} posts - The array of RedditPost objects.
+ * Renders the summary of a topic's Reddit discussions in the main content area.
+ * @param {object|undefined} summary - The topic bundle's redditSummary, if one has been generated.
  * @param {string} subjectTitle - The title of the Wikipedia article being researched.
  */
-export function renderRedditPosts(posts, subjectTitle) {
+export function renderRedditSummary(summary, subjectTitle) {
     const container = document.getElementById('reddit-feed-container');
     const feedTitle = document.getElementById('main-feed-title');
 
     container.innerHTML = '';
     feedTitle.textContent = `Latest Discussions: ${subjectTitle}`;
 
-    if (!posts || posts.length === 0) {
-        container.innerHTML = '<div class="no-posts">No recent Reddit posts found for this topic.</div>';
+    if (!summary) {
+        container.innerHTML = '<div class="no-posts">No Reddit discussion summary for this topic yet.</div>';
         return;
     }
 
-    posts.forEach(post => {
-        const postDiv = document.createElement('div');
-        postDiv.className = 'reddit-post';
-
-        const metaDiv = document.createElement('div');
-        metaDiv.className = 'post-meta';
-
-        const date = new Date(post.postedAt).toLocaleDateString();
-        metaDiv.textContent = `${post.subreddit} • ${date}`;
-
-        const titleLink = document.createElement('a');
-        titleLink.href = post.url;
-        titleLink.className = 'post-title';
-        titleLink.textContent = post.title;
-        titleLink.target = '_blank';
-        titleLink.rel = 'noopener noreferrer';
-
-        const upvotesDiv = document.createElement('div');
-        upvotesDiv.className = 'post-upvotes';
-        upvotesDiv.innerHTML = `${post.upvotes.toLocaleString()} <span> upvotes</span> `;
-
-        if (post.body) {
-            const bodyDiv = document.createElement('div');
-            bodyDiv.className = 'post-body';
-            bodyDiv.textContent = post.body.length > 200
-                ? post.body.substring(0, 200) + '...'
-                : post.body;
-            postDiv.appendChild(bodyDiv);
-        }
+    const summaryDiv = document.createElement('div');
+    summaryDiv.className = 'reddit-post';
 
-        postDiv.prepend(titleLink);
-        postDiv.prepend(metaDiv);
-        postDiv.appendChild(upvotesDiv);
+    const metaDiv = document.createElement('div');
+    metaDiv.className = 'post-meta';
+    metaDiv.textContent = `Summarized ${new Date(summary.createdAt).toLocaleDateString()}`;
 
-        container.appendChild(postDiv);
-    });
+    const bodyDiv = document.createElement('div');
+    bodyDiv.className = 'post-body';
+    bodyDiv.textContent = summary.summary;
+
+    summaryDiv.appendChild(metaDiv);
+    summaryDiv.appendChild(bodyDiv);
+    container.appendChild(summaryDiv);
 }
 
 /**
@@ -177,5 +155,5 @@ export function renderRedditPosts(posts, subjectTitle) {
  */
 export function showMainContentLoading() {
     const container = document.getElementById('reddit-feed-container');
-    container.innerHTML = '<div class="loading-feed">Fetching latest Reddit posts...</div>';
+    container.innerHTML = '<div class="loading-feed">Fetching Reddit discussion summary...</div>';
 }
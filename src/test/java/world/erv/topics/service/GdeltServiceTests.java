@@ -0,0 +1,145 @@
+package world.erv.topics.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import world.erv.topics.config.AppConfig;
+import world.erv.topics.model.GdeltToneChart;
+import world.erv.topics.repository.GdeltToneChartRepository;
+import world.erv.topics.repository.GdeltToneChartWriter;
+import world.erv.topics.repository.TopicRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the GDELT client against a local HTTP stub, through the same upstream client configuration as production.
+ */
+class GdeltServiceTests {
+
+    private static final String TONE_CHART =
+            "{\"tonechart\": [{\"bin\": -2, \"count\": 5}, {\"bin\": 3, \"count\": 7}]}";
+
+    private MockWebServer server;
+    private AppConfig appConfig;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        appConfig = new AppConfig(new MockEnvironment()
+                .withProperty("upstreams.gdelt.base-url", server.url("/api/v2/doc/doc").toString())
+                .withProperty("upstreams.gdelt.http2", "false"));
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        appConfig.destroy();
+        server.shutdown();
+    }
+
+    @Test
+    void retriesServerErrorsAndTooManyRequests() throws InterruptedException {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(429));
+        server.enqueue(new MockResponse().setBody(TONE_CHART));
+
+        GdeltToneChart toneChart = gdeltService(100, 1).fetchGdeltToneChart("Ada_Lovelace", "1d").block();
+
+        assertThat(toneChart).isNotNull();
+        assertThat(toneChart.getToneChart().asString())
+                .contains("\"timespan\":\"1d\"")
+                .contains("{\"bin\":-2,\"count\":5}")
+                .contains("{\"bin\":3,\"count\":7}");
+        assertThat(server.getRequestCount()).isEqualTo(3);
+
+        RecordedRequest request = server.takeRequest(1, TimeUnit.SECONDS);
+        assertThat(request).isNotNull();
+        assertThat(request.getRequestUrl().queryParameter("query")).isEqualTo("\"Ada Lovelace\"");
+        assertThat(request.getRequestUrl().queryParameter("mode")).isEqualTo("tonechart");
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        server.enqueue(new MockResponse().setResponseCode(400));
+        server.enqueue(new MockResponse().setBody(TONE_CHART));
+
+        StepVerifier.create(gdeltService(100, 1).fetchGdeltToneChart("Ada_Lovelace", "1d"))
+                .expectError(WebClientResponseException.BadRequest.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rateLimitsRequests() {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody(TONE_CHART);
+            }
+        });
+        GdeltService gdeltService = gdeltService(10, 1);
+
+        // One token up front, then one every 100ms
+        long start = System.nanoTime();
+        List<GdeltToneChart> toneCharts = Flux.just("A", "B", "C", "D")
+                .flatMap(title -> gdeltService.fetchGdeltToneChart(title, "1d"))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(toneCharts).hasSize(4);
+        assertThat(server.getRequestCount()).isEqualTo(4);
+        assertThat(elapsed).isGreaterThanOrEqualTo(Duration.ofMillis(280));
+    }
+
+    @Test
+    void sharesInFlightRequestsForTheSameTopic() {
+        server.enqueue(new MockResponse().setBody(TONE_CHART).setBodyDelay(200, TimeUnit.MILLISECONDS));
+        GdeltService gdeltService = gdeltService(100, 10);
+
+        List<GdeltToneChart> toneCharts = Flux.merge(
+                        gdeltService.fetchGdeltToneChart("Ada_Lovelace", "1d"),
+                        gdeltService.fetchGdeltToneChart("Ada_Lovelace", "1d"),
+                        gdeltService.fetchGdeltToneChart("Ada_Lovelace", "1d"))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(toneCharts).hasSize(3);
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    private GdeltService gdeltService(double permitsPerSecond, int burst) {
+        return new GdeltService(
+                appConfig.gdeltWebClient(WebClient.builder()),
+                mock(GdeltToneChartRepository.class),
+                mock(GdeltToneChartWriter.class),
+                mock(TopicRepository.class),
+                new ObjectMapper(),
+                new ToneChartCache(Duration.ofHours(1), 100),
+                permitsPerSecond,
+                burst,
+                4,
+                3,
+                Duration.ofMillis(10),
+                25,
+                "1d"
+        );
+    }
+}
@@ -0,0 +1,178 @@
+package world.erv.topics.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import world.erv.topics.model.RedditSummary;
+import world.erv.topics.model.Topic;
+import world.erv.topics.repository.RedditSummaryRepository;
+import world.erv.topics.repository.TopicRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs summarization against a fake {@link SummaryClient} that answers batched prompts by echoing their subjects.
+ */
+class SummaryServiceTests {
+
+    private static final Map<String, Long> TOPIC_IDS = Map.of(
+            "Alpha", 1L,
+            "Beta", 2L,
+            "Gamma", 3L,
+            "Delta", 4L,
+            "Epsilon", 5L
+    );
+
+    private final FakeSummaryClient summaryClient = new FakeSummaryClient();
+    private final TopicRepository topicRepository = mock(TopicRepository.class);
+    private final RedditSummaryRepository redditSummaryRepository = mock(RedditSummaryRepository.class);
+    // Each saveAll call, in the order the service made them
+    private final List<List<RedditSummary>> saved = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void stubRepositories() {
+        when(topicRepository.findByTitleIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> titles = invocation.getArgument(0);
+            return Flux.fromIterable(titles).map(title -> topic(TOPIC_IDS.get(title), title));
+        });
+        // Epsilon has already been summarized today
+        when(redditSummaryRepository.findTopicIdsSummarizedSince(any(Instant.class), anyCollection()))
+                .thenReturn(Flux.just(5L));
+        when(redditSummaryRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            List<RedditSummary> summaries = new ArrayList<>();
+            invocation.<Iterable<RedditSummary>>getArgument(0).forEach(summaries::add);
+            saved.add(summaries);
+            return Flux.fromIterable(summaries);
+        });
+    }
+
+    @AfterEach
+    void releaseHungCalls() {
+        summaryClient.hang.countDown();
+    }
+
+    @Test
+    void batchesPendingTopicsAndSkipsTopicsSummarizedToday() {
+        summaryService(2, Duration.ofSeconds(5))
+                .updateDiscussionData(List.of("Alpha", "Beta", "Gamma", "Delta", "Epsilon"))
+                .block(Duration.ofSeconds(10));
+
+        assertThat(summaryClient.prompts).hasSize(2);
+        assertThat(summaryClient.prompts).noneMatch(prompt -> prompt.contains("Epsilon"));
+        assertThat(saved).hasSize(2);
+        assertThat(savedSummaries())
+                .containsOnlyKeys(1L, 2L, 3L, 4L)
+                .containsEntry(1L, "Summary of Alpha")
+                .containsEntry(4L, "Summary of Delta");
+    }
+
+    @Test
+    void storesOtherBatchesWhenACallFails() {
+        summaryClient.failing.add("Gamma");
+
+        summaryService(2, Duration.ofSeconds(5))
+                .updateDiscussionData(List.of("Alpha", "Beta", "Gamma", "Delta"))
+                .block(Duration.ofSeconds(10));
+
+        assertThat(summaryClient.prompts).hasSize(2);
+        assertThat(savedSummaries()).containsOnlyKeys(1L, 2L);
+    }
+
+    @Test
+    void storesOtherBatchesWhenACallHangs() {
+        summaryClient.hanging.add("Alpha");
+
+        summaryService(1, Duration.ofMillis(200))
+                .updateDiscussionData(List.of("Alpha", "Beta", "Gamma"))
+                .block(Duration.ofSeconds(10));
+
+        assertThat(savedSummaries()).containsOnlyKeys(2L, 3L);
+    }
+
+    private SummaryService summaryService(int batchSize, Duration callTimeout) {
+        return new SummaryService(
+                summaryClient,
+                topicRepository,
+                redditSummaryRepository,
+                new ObjectMapper(),
+                4,
+                batchSize,
+                callTimeout
+        );
+    }
+
+    private Map<Long, String> savedSummaries() {
+        return saved.stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toMap(RedditSummary::getTopicId, RedditSummary::getSummary));
+    }
+
+    private static Topic topic(long id, String title) {
+        Topic topic = new Topic();
+        topic.setId(id);
+        topic.setTitle(title);
+        return topic;
+    }
+
+    /**
+     * Answers single prompts with plain text and batched prompts with the JSON object the service asks for. A
+     * prompt naming a failing subject throws, and one naming a hanging subject blocks until the test ends.
+     */
+    private static final class FakeSummaryClient implements SummaryClient {
+
+        final List<String> prompts = new CopyOnWriteArrayList<>();
+        final List<String> failing = new CopyOnWriteArrayList<>();
+        final List<String> hanging = new CopyOnWriteArrayList<>();
+        final CountDownLatch hang = new CountDownLatch(1);
+
+        @Override
+        public String generate(String prompt) {
+            prompts.add(prompt);
+            if (failing.stream().anyMatch(prompt::contains)) {
+                throw new IllegalStateException("Model unavailable");
+            }
+            if (hanging.stream().anyMatch(prompt::contains)) {
+                try {
+                    hang.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            List<String> subjects = prompt.lines()
+                    .filter(line -> line.startsWith("- "))
+                    .map(line -> line.substring(2))
+                    .toList();
+            if (subjects.isEmpty()) {
+                String subject = TOPIC_IDS.keySet().stream().filter(prompt::contains).findFirst().orElseThrow();
+                return "Summary of " + subject;
+            }
+
+            Map<String, String> summaries = new ConcurrentHashMap<>();
+            subjects.forEach(subject -> summaries.put(subject, "Summary of " + subject));
+            try {
+                return "```json\n" + new ObjectMapper().writeValueAsString(summaries) + "\n```";
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}